@@ -0,0 +1,583 @@
+package fr.wonder.commons.files;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import fr.wonder.commons.utils.SortingUtils;
+
+/**
+ * Sorts files that are too large to be loaded in memory.
+ * <p>
+ * The input is read in runs that fit in the memory budget, each run is sorted
+ * in memory and spilled to a temporary file (see
+ * {@link FilesUtils#createTempFile(File, String)}), runs are then merged using
+ * a k-way merge with a tree of losers over buffered readers. If there are more
+ * runs than the maximum merge width intermediate merges are done first.
+ * <p>
+ * Files of fixed width keys ({@link #sortInts(File, File) ints},
+ * {@link #sortLongs(File, File) longs}, big endian as written by a
+ * {@link DataOutput}) are read through {@link FileChannel}s and sorted with
+ * radix sorts, arbitrary records can be sorted by providing a
+ * {@link RecordCodec}. The sort of records is stable.
+ * <p>
+ * Example use case: <blockquote>
+ *
+ * <pre>
+ *   new ExternalSort()
+ *     .setMemoryBudget(512 * FilesUtils.SIZE_1M)
+ *     .setParallelism(4)
+ *     .sortLongs(timestampsFile, sortedFile);
+ * </pre>
+ *
+ * </blockquote>
+ *
+ * The input and output files must be different.
+ */
+public class ExternalSort {
+
+	/**
+	 * Describes how records are read from and written to files, written records
+	 * must be read back exactly by {@link #read(DataInput)}.
+	 */
+	public interface RecordCodec<T> {
+
+		void write(DataOutput out, T record) throws IOException;
+
+		T read(DataInput in) throws IOException;
+
+		/**
+		 * Returns an estimation of the memory used by a record once loaded, in
+		 * bytes, used to respect the memory budget.
+		 */
+		long sizeOf(T record);
+
+	}
+
+	private static final int MIN_BUFFER_SIZE = 4 * FilesUtils.SIZE_1K;
+	private static final int MAX_BUFFER_SIZE = 8 * FilesUtils.SIZE_1M;
+	private static final int MIN_RUN_LENGTH = 1024;
+
+	private long memoryBudget = 64 * FilesUtils.SIZE_1M;
+	private int parallelism = 1;
+	private int maxMergeWidth = 64;
+	private File tempDirectory;
+
+	/** Creates an external sort with the default settings */
+	public ExternalSort() {}
+
+	/**
+	 * Sets the amount of memory the sort may use, in bytes. Defaults to 64Mb.
+	 * The budget is shared between the runs being sorted concurrently.
+	 */
+	public ExternalSort setMemoryBudget(long bytes) {
+		if(bytes < FilesUtils.SIZE_1M)
+			throw new IllegalArgumentException("Memory budget too small: " + bytes);
+		this.memoryBudget = bytes;
+		return this;
+	}
+
+	/**
+	 * Sets the number of runs that can be sorted and spilled concurrently while
+	 * the next run is read. Defaults to 1.
+	 */
+	public ExternalSort setParallelism(int threads) {
+		if(threads < 1)
+			throw new IllegalArgumentException("Invalid parallelism: " + threads);
+		this.parallelism = threads;
+		return this;
+	}
+
+	/** Sets the maximum number of runs merged at once. Defaults to 64. */
+	public ExternalSort setMaxMergeWidth(int width) {
+		if(width < 2)
+			throw new IllegalArgumentException("Invalid merge width: " + width);
+		this.maxMergeWidth = width;
+		return this;
+	}
+
+	/**
+	 * Sets the directory temporary run files are created in, or null to use
+	 * the default temporary directory.
+	 */
+	public ExternalSort setTempDirectory(File dir) {
+		this.tempDirectory = dir;
+		return this;
+	}
+
+	/** Sorts a file of big endian ints */
+	public void sortInts(File input, File output) throws IOException {
+		sortFixedWidth(input, output, Integer.BYTES);
+	}
+
+	/** Sorts a file of big endian longs */
+	public void sortLongs(File input, File output) throws IOException {
+		sortFixedWidth(input, output, Long.BYTES);
+	}
+
+	/**
+	 * Sorts a file of records, the whole input file is read using
+	 * {@code codec} and the records are written back in order in the output
+	 * file.
+	 */
+	public <T> void sort(File input, File output, RecordCodec<T> codec, Comparator<? super T> comparator) throws IOException {
+		checkFiles(input, output);
+		List<Run> runs = new ArrayList<>();
+		long runBudget = memoryBudget / (parallelism + 1);
+		try (RunSpiller spiller = new RunSpiller(runs);
+			BufferedInputStream bin = new BufferedInputStream(new FileInputStream(input), bufferSize(1))) {
+			DataInputStream in = new DataInputStream(bin);
+			List<T> records = new ArrayList<>();
+			long size = 0;
+			while(true) {
+				boolean eof = isEOF(bin);
+				if(!eof) {
+					T record = codec.read(in);
+					records.add(record);
+					size += codec.sizeOf(record);
+				}
+				if(size >= runBudget || (eof && (!records.isEmpty() || runs.isEmpty()))) {
+					List<T> run = records;
+					boolean single = eof && runs.isEmpty();
+					File target = single ? output : FilesUtils.createTempFile(tempDirectory, "sortrun");
+					spiller.submit(new Run(target, run.size()), () -> {
+						run.sort(comparator);
+						writeRecords(target, run, codec);
+					});
+					records = new ArrayList<>();
+					size = 0;
+				}
+				if(eof)
+					break;
+			}
+		} catch (IOException | RuntimeException e) {
+			deleteRuns(runs, output);
+			throw e;
+		}
+		if(runs.size() == 1 && runs.get(0).file.equals(output))
+			return;
+		merge(runs, output, (sources, out) -> mergeRecords(sources, out, codec, comparator));
+	}
+
+	private void sortFixedWidth(File input, File output, int width) throws IOException {
+		checkFiles(input, output);
+		List<Run> runs = new ArrayList<>();
+		int runLength = (int) Math.min(Integer.MAX_VALUE - 8,
+				Math.max(MIN_RUN_LENGTH, memoryBudget / (2L * width * (parallelism + 1))));
+		try (RunSpiller spiller = new RunSpiller(runs);
+			FileChannel in = FileChannel.open(input.toPath(), StandardOpenOption.READ)) {
+			long total = in.size();
+			if(total % width != 0)
+				throw new IOException("File " + input + " is not a file of " + width + " bytes elements");
+			long remaining = total / width;
+			ByteBuffer buffer = ByteBuffer.allocateDirect(bufferSize(1) / width * width);
+			buffer.flip();
+			do {
+				int length = (int) Math.min(runLength, remaining);
+				remaining -= length;
+				boolean single = remaining == 0 && runs.isEmpty();
+				File target = single ? output : FilesUtils.createTempFile(tempDirectory, "sortrun");
+				if(width == Integer.BYTES) {
+					int[] run = new int[length];
+					for(int i = 0; i < length; ) {
+						fill(in, buffer, width);
+						int n = Math.min(length - i, buffer.remaining() / width);
+						buffer.asIntBuffer().get(run, i, n);
+						buffer.position(buffer.position() + n * width);
+						i += n;
+					}
+					spiller.submit(new Run(target, length), () -> {
+						SortingUtils.radixSort(run, new int[run.length]);
+						try (FixedWidthWriter w = new FixedWidthWriter(target, width, bufferSize(1))) {
+							for(int x : run)
+								w.write(x);
+						}
+					});
+				} else {
+					long[] run = new long[length];
+					for(int i = 0; i < length; ) {
+						fill(in, buffer, width);
+						int n = Math.min(length - i, buffer.remaining() / width);
+						buffer.asLongBuffer().get(run, i, n);
+						buffer.position(buffer.position() + n * width);
+						i += n;
+					}
+					spiller.submit(new Run(target, length), () -> {
+						SortingUtils.radixSort(run, new long[run.length]);
+						try (FixedWidthWriter w = new FixedWidthWriter(target, width, bufferSize(1))) {
+							for(long x : run)
+								w.write(x);
+						}
+					});
+				}
+			} while(remaining > 0);
+		} catch (IOException | RuntimeException e) {
+			deleteRuns(runs, output);
+			throw e;
+		}
+		if(runs.size() == 1 && runs.get(0).file.equals(output))
+			return;
+		merge(runs, output, (sources, out) -> mergeFixedWidth(sources, out, width));
+	}
+
+	/** Reads more bytes in the buffer if it does not contain a whole element */
+	private static void fill(FileChannel in, ByteBuffer buffer, int width) throws IOException {
+		if(buffer.remaining() >= width)
+			return;
+		buffer.compact();
+		while(buffer.hasRemaining()) {
+			if(in.read(buffer) < 0) {
+				if(buffer.position() < width)
+					throw new EOFException("Input file truncated while sorting");
+				break;
+			}
+		}
+		buffer.flip();
+	}
+
+	private static void checkFiles(File input, File output) throws IOException {
+		if(input.getCanonicalFile().equals(output.getCanonicalFile()))
+			throw new IllegalArgumentException("Cannot sort file " + input + " in place");
+	}
+
+	private static boolean isEOF(BufferedInputStream in) throws IOException {
+		in.mark(1);
+		boolean eof = in.read() == -1;
+		in.reset();
+		return eof;
+	}
+
+	private int bufferSize(int streams) {
+		long size = memoryBudget / 4 / streams;
+		return (int) Math.max(MIN_BUFFER_SIZE, Math.min(MAX_BUFFER_SIZE, size));
+	}
+
+	private interface Merger {
+		void merge(List<Run> sources, Run output) throws IOException;
+	}
+
+	/** Merges all runs in {@code output}, making intermediate merges if there are too many runs */
+	private void merge(List<Run> runs, File output, Merger merger) throws IOException {
+		List<Run> pending = new ArrayList<>(runs);
+		try {
+			// each round merges consecutive runs and puts the merged run in their
+			// place, runs stay in input order so the merge is stable
+			while(pending.size() > maxMergeWidth) {
+				for(int i = 0; i < pending.size() - 1; i++) {
+					List<Run> group = pending.subList(i, Math.min(i + maxMergeWidth, pending.size()));
+					long count = group.stream().mapToLong(r -> r.count).sum();
+					Run merged = new Run(FilesUtils.createTempFile(tempDirectory, "sortrun"), count);
+					try {
+						merger.merge(group, merged);
+					} catch (IOException | RuntimeException e) {
+						merged.file.delete();
+						throw e;
+					} finally {
+						for(Run r : group)
+							r.file.delete();
+					}
+					group.clear();
+					pending.add(i, merged);
+				}
+			}
+			long count = pending.stream().mapToLong(r -> r.count).sum();
+			merger.merge(pending, new Run(output, count));
+		} finally {
+			for(Run r : pending)
+				r.file.delete();
+		}
+	}
+
+	private void mergeFixedWidth(List<Run> sources, Run output, int width) throws IOException {
+		int bufferSize = bufferSize(sources.size() + 1);
+		List<FixedWidthReader> readers = new ArrayList<>();
+		try (FixedWidthWriter out = new FixedWidthWriter(output.file, width, bufferSize)) {
+			for(Run r : sources)
+				readers.add(new FixedWidthReader(r, width, bufferSize));
+			FixedWidthReader[] heads = readers.toArray(FixedWidthReader[]::new);
+			LoserTree tree = new LoserTree(heads.length) {
+				@Override
+				protected boolean isExhausted(int s) {
+					return heads[s].remaining < 0;
+				}
+				@Override
+				protected boolean isLess(int a, int b) {
+					return heads[a].head < heads[b].head;
+				}
+			};
+			tree.init();
+			for(long i = 0; i < output.count; i++) {
+				FixedWidthReader r = heads[tree.winner()];
+				out.write(r.head);
+				r.advance();
+				tree.replay();
+			}
+		} finally {
+			closeAll(readers);
+		}
+	}
+
+	private <T> void mergeRecords(List<Run> sources, Run output, RecordCodec<T> codec,
+			Comparator<? super T> comparator) throws IOException {
+		int bufferSize = bufferSize(sources.size() + 1);
+		List<RecordReader<T>> readers = new ArrayList<>();
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+				new FileOutputStream(output.file), bufferSize))) {
+			for(Run r : sources)
+				readers.add(new RecordReader<>(r, codec, bufferSize));
+			LoserTree tree = new LoserTree(readers.size()) {
+				@Override
+				protected boolean isExhausted(int s) {
+					return readers.get(s).remaining < 0;
+				}
+				@Override
+				protected boolean isLess(int a, int b) {
+					return comparator.compare(readers.get(a).head, readers.get(b).head) < 0;
+				}
+			};
+			tree.init();
+			for(long i = 0; i < output.count; i++) {
+				RecordReader<T> r = readers.get(tree.winner());
+				codec.write(out, r.head);
+				r.advance();
+				tree.replay();
+			}
+		} finally {
+			closeAll(readers);
+		}
+	}
+
+	private static <T> void writeRecords(File file, List<T> records, RecordCodec<T> codec) throws IOException {
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+				new FileOutputStream(file), MAX_BUFFER_SIZE / 8))) {
+			for(T t : records)
+				codec.write(out, t);
+		}
+	}
+
+	private static void deleteRuns(List<Run> runs, File output) {
+		for(Run r : runs) {
+			if(!r.file.equals(output))
+				r.file.delete();
+		}
+	}
+
+	private static void closeAll(List<? extends Closeable> closeables) throws IOException {
+		IOException ex = null;
+		for(Closeable c : closeables) {
+			try {
+				c.close();
+			} catch (IOException e) {
+				if(ex == null)
+					ex = e;
+				else
+					ex.addSuppressed(e);
+			}
+		}
+		if(ex != null)
+			throw ex;
+	}
+
+	/** A sorted run stored in a file */
+	private static class Run {
+
+		private final File file;
+		private final long count;
+
+		Run(File file, long count) {
+			this.file = file;
+			this.count = count;
+		}
+	}
+
+	private interface SpillTask {
+		void run() throws IOException;
+	}
+
+	/**
+	 * Sorts and writes runs, concurrently if the parallelism is greater than 1
+	 * while the caller reads the next run. At most {@code parallelism} runs are
+	 * in flight at once.
+	 */
+	private class RunSpiller implements Closeable {
+
+		private final List<Run> runs;
+		private final ExecutorService executor;
+		private final Deque<Future<?>> inFlight = new ArrayDeque<>();
+
+		RunSpiller(List<Run> runs) {
+			this.runs = runs;
+			this.executor = parallelism > 1 ? Executors.newFixedThreadPool(parallelism) : null;
+		}
+
+		void submit(Run run, SpillTask task) throws IOException {
+			runs.add(run);
+			if(executor == null) {
+				task.run();
+				return;
+			}
+			if(inFlight.size() >= parallelism)
+				await(inFlight.removeFirst());
+			inFlight.addLast(executor.submit(() -> {
+				try {
+					task.run();
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+			}));
+		}
+
+		private void await(Future<?> f) throws IOException {
+			try {
+				f.get();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException("Interrupted while sorting runs");
+			} catch (ExecutionException e) {
+				if(e.getCause() instanceof UncheckedIOException)
+					throw ((UncheckedIOException) e.getCause()).getCause();
+				throw new IOException("Unable to sort run", e.getCause());
+			}
+		}
+
+		@Override
+		public void close() throws IOException {
+			if(executor == null)
+				return;
+			try {
+				while(!inFlight.isEmpty())
+					await(inFlight.removeFirst());
+			} finally {
+				executor.shutdownNow();
+				for(Future<?> f : inFlight)
+					f.cancel(true);
+			}
+		}
+	}
+
+	private static class FixedWidthReader implements Closeable {
+
+		private final FileChannel channel;
+		private final ByteBuffer buffer;
+		private final int width;
+		/** the number of elements left after the head, -1 once exhausted */
+		private long remaining;
+		private long head;
+
+		FixedWidthReader(Run run, int width, int bufferSize) throws IOException {
+			this.channel = FileChannel.open(run.file.toPath(), StandardOpenOption.READ);
+			this.buffer = ByteBuffer.allocateDirect(bufferSize / width * width);
+			this.buffer.flip();
+			this.width = width;
+			this.remaining = run.count;
+			advance();
+		}
+
+		void advance() throws IOException {
+			if(remaining-- == 0)
+				return;
+			if(buffer.remaining() < width) {
+				buffer.compact();
+				while(buffer.position() < width) {
+					if(channel.read(buffer) < 0)
+						throw new EOFException("Run file truncated");
+				}
+				buffer.flip();
+			}
+			head = width == Integer.BYTES ? buffer.getInt() : buffer.getLong();
+		}
+
+		@Override
+		public void close() throws IOException {
+			channel.close();
+		}
+	}
+
+	private static class FixedWidthWriter implements Closeable {
+
+		private final FileChannel channel;
+		private final ByteBuffer buffer;
+		private final int width;
+
+		FixedWidthWriter(File file, int width, int bufferSize) throws IOException {
+			this.channel = FileChannel.open(file.toPath(), StandardOpenOption.WRITE,
+					StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
+			this.buffer = ByteBuffer.allocateDirect(bufferSize / width * width);
+			this.width = width;
+		}
+
+		void write(long x) throws IOException {
+			if(!buffer.hasRemaining())
+				flush();
+			if(width == Integer.BYTES)
+				buffer.putInt((int) x);
+			else
+				buffer.putLong(x);
+		}
+
+		private void flush() throws IOException {
+			buffer.flip();
+			while(buffer.hasRemaining())
+				channel.write(buffer);
+			buffer.clear();
+		}
+
+		@Override
+		public void close() throws IOException {
+			try {
+				flush();
+			} finally {
+				channel.close();
+			}
+		}
+	}
+
+	private static class RecordReader<T> implements Closeable {
+
+		private final DataInputStream in;
+		private final RecordCodec<T> codec;
+		/** the number of records left after the head, -1 once exhausted */
+		private long remaining;
+		private T head;
+
+		RecordReader(Run run, RecordCodec<T> codec, int bufferSize) throws IOException {
+			this.in = new DataInputStream(new BufferedInputStream(new FileInputStream(run.file), bufferSize));
+			this.codec = codec;
+			this.remaining = run.count;
+			advance();
+		}
+
+		void advance() throws IOException {
+			head = remaining-- == 0 ? null : codec.read(in);
+		}
+
+		@Override
+		public void close() throws IOException {
+			in.close();
+		}
+	}
+
+}
@@ -174,6 +174,22 @@ public class FilesUtils {
 		return createDir(new File(parent, path));
 	}
 
+	/**
+	 * Creates a new empty temporary file in {@code dir}, or in the default
+	 * temporary directory if {@code dir} is null. The caller is responsible for
+	 * deleting the file once it is no longer needed.
+	 * 
+	 * @param dir the directory to create the file in, created if necessary
+	 * @param prefix the prefix of the file name, at least 3 characters long
+	 * @return the created file
+	 * @throws IOException if the file could not be created
+	 */
+	public static File createTempFile(File dir, String prefix) throws IOException {
+		if(dir != null)
+			dir.mkdirs();
+		return File.createTempFile(prefix, ".tmp", dir);
+	}
+
 	public static String read(File file) throws IOException {
 		try(InputStream is = new FileInputStream(file)) {
 			return new String(is.readAllBytes());
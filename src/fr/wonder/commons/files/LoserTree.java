@@ -0,0 +1,76 @@
+package fr.wonder.commons.files;
+
+/**
+ * A tournament tree of losers used to merge {@code k} sorted sources, finding
+ * the next element takes {@code log2(k)} comparisons.
+ * <p>
+ * Implementations compare the current heads of the sources, once the head of
+ * the {@link #winner() winning} source has been consumed and the source
+ * advanced {@link #replay()} must be called. Sources are numbered from 0 to
+ * {@code k-1}, on equality the source with the lowest index wins so merging
+ * runs in their original order is stable.
+ */
+abstract class LoserTree {
+
+	private final int k;
+	/** tree[0] is the winner, tree[1..k-1] the losers of each match */
+	private final int[] tree;
+
+	LoserTree(int k) {
+		if(k < 1)
+			throw new IllegalArgumentException("Cannot merge less than one source");
+		this.k = k;
+		this.tree = new int[k];
+	}
+
+	/** Returns true if source {@code s} has no element left */
+	protected abstract boolean isExhausted(int s);
+
+	/** Returns true if the head of source {@code a} is strictly less than the head of {@code b} */
+	protected abstract boolean isLess(int a, int b);
+
+	/** Plays all matches, must be called once all sources are ready */
+	void init() {
+		int[] winners = new int[2*k];
+		for(int s = 0; s < k; s++)
+			winners[k+s] = s;
+		for(int node = k-1; node > 0; node--) {
+			int a = winners[2*node], b = winners[2*node+1];
+			if(beats(a, b)) {
+				winners[node] = a;
+				tree[node] = b;
+			} else {
+				winners[node] = b;
+				tree[node] = a;
+			}
+		}
+		tree[0] = k == 1 ? 0 : winners[1];
+	}
+
+	/** Returns the source holding the smallest head, exhausted if all sources are */
+	int winner() {
+		return tree[0];
+	}
+
+	/** Replays the matches of the previous winner after its source advanced */
+	void replay() {
+		int s = tree[0];
+		for(int node = (s + k) >> 1; node > 0; node >>= 1) {
+			if(beats(tree[node], s)) {
+				int t = tree[node];
+				tree[node] = s;
+				s = t;
+			}
+		}
+		tree[0] = s;
+	}
+
+	private boolean beats(int a, int b) {
+		if(isExhausted(a))
+			return false;
+		if(isExhausted(b))
+			return true;
+		return isLess(a, b) || (a < b && !isLess(b, a));
+	}
+
+}
@@ -0,0 +1,99 @@
+package fr.wonder.commons.types;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A {@link FrozenMap} whose values are unique, that can be looked up in both
+ * directions. The map and its {@link #inverse() inverse} are both frozen when
+ * the bidirectional map is created.
+ * <p>
+ * Example use case: <blockquote>
+ *
+ * <pre>
+ *   FrozenBiMap&lt;String, Integer&gt; opcodes = FrozenBiMap.copyOf(opcodesByName);
+ *   int code = opcodes.get("add");
+ *   String name = opcodes.inverse().get(code);
+ * </pre>
+ *
+ * </blockquote>
+ *
+ * @see fr.wonder.commons.utils.MapOperator#reverseFrozen(Map)
+ */
+public class FrozenBiMap<K, V> extends FrozenMap<K, V> {
+
+	private final FrozenMap<K, V> forward;
+	private final FrozenBiMap<V, K> inverse;
+
+	private FrozenBiMap(FrozenMap<K, V> forward, FrozenMap<V, K> backward) {
+		this.forward = forward;
+		this.inverse = new FrozenBiMap<>(backward, this);
+	}
+
+	private FrozenBiMap(FrozenMap<K, V> forward, FrozenBiMap<V, K> inverse) {
+		this.forward = forward;
+		this.inverse = inverse;
+	}
+
+	/**
+	 * Returns a frozen bidirectional copy of {@code map}, or {@code map} itself
+	 * if it already is one.
+	 *
+	 * @throws IllegalArgumentException if two keys of {@code map} are
+	 *         associated with the same value
+	 */
+	@SuppressWarnings("unchecked")
+	public static <K, V> FrozenBiMap<K, V> copyOf(Map<? extends K, ? extends V> map) {
+		if(map instanceof FrozenBiMap)
+			return (FrozenBiMap<K, V>) map;
+		Map<V, K> backward = new HashMap<>((int) (map.size() / .75f) + 1);
+		for(Entry<? extends K, ? extends V> e : map.entrySet()) {
+			if(backward.containsKey(e.getValue()))
+				throw new IllegalArgumentException("Duplicate value " + e.getValue() +
+						" for keys " + backward.get(e.getValue()) + " and " + e.getKey());
+			backward.put(e.getValue(), e.getKey());
+		}
+		return new FrozenBiMap<>(FrozenMap.copyOf(map), FrozenMap.copyOf(backward));
+	}
+
+	/** Returns the inverse view of this map, mapping values to their keys */
+	public FrozenBiMap<V, K> inverse() {
+		return inverse;
+	}
+
+	@Override
+	public boolean containsValue(Object value) {
+		return inverse.containsKey(value);
+	}
+
+	@Override
+	int slotOf(Object key) {
+		return forward.slotOf(key);
+	}
+
+	@Override
+	int slotCount() {
+		return forward.slotCount();
+	}
+
+	@Override
+	boolean isUsed(int slot) {
+		return forward.isUsed(slot);
+	}
+
+	@Override
+	K keyAt(int slot) {
+		return forward.keyAt(slot);
+	}
+
+	@Override
+	V valueAt(int slot) {
+		return forward.valueAt(slot);
+	}
+
+	@Override
+	public int size() {
+		return forward.size();
+	}
+
+}
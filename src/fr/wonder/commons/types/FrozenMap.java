@@ -0,0 +1,364 @@
+package fr.wonder.commons.types;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.function.BiConsumer;
+
+/**
+ * An immutable map stored in flat arrays, meant for maps that are built once
+ * and only read afterwards.
+ * <p>
+ * The layout depends on the frozen map:
+ * <ul>
+ * <li>maps with enum keys store their values in an array indexed by the keys'
+ * ordinals</li>
+ * <li>small maps store their keys sorted by hash code, lookups scan the hash
+ * codes up to the searched one</li>
+ * <li>other maps use an open-addressing table with linear probing</li>
+ * </ul>
+ * In all cases there is no per-entry object, lookups do not allocate and
+ * iteration walks arrays. Null keys and values are supported, all mutating
+ * methods throw {@link UnsupportedOperationException}.
+ * <p>
+ * Example use case: <blockquote>
+ *
+ * <pre>
+ *   FrozenMap&lt;String, Command&gt; commands = FrozenMap.copyOf(registry);
+ *   Command c = commands.get(name);
+ * </pre>
+ *
+ * </blockquote>
+ *
+ * @see fr.wonder.commons.utils.MapOperator#freeze(Map)
+ */
+public abstract class FrozenMap<K, V> extends AbstractMap<K, V> {
+
+	/** Maps up to this size are stored sorted by hash */
+	private static final int SMALL_SIZE = 16;
+
+	/** Stands for the null key in key arrays, where null marks empty slots */
+	private static final Object NULL_KEY = new Object();
+
+	private Set<Entry<K, V>> entrySet;
+
+	FrozenMap() {}
+
+	/**
+	 * Returns a frozen copy of {@code map}, or {@code map} itself if it is
+	 * already frozen.
+	 */
+	@SuppressWarnings("unchecked")
+	public static <K, V> FrozenMap<K, V> copyOf(Map<? extends K, ? extends V> map) {
+		if(map instanceof FrozenMap)
+			return (FrozenMap<K, V>) map;
+		Class<?> enumType = enumKeyType(map);
+		if(enumType != null)
+			return new EnumKeys<>(map, enumType);
+		if(map.size() <= SMALL_SIZE)
+			return new SortedKeys<>(map);
+		return new HashedKeys<>(map);
+	}
+
+	/** Returns the enum type of all the keys of {@code map}, or null if they are not all constants of the same enum */
+	private static Class<?> enumKeyType(Map<?, ?> map) {
+		Class<?> type = null;
+		for(Object key : map.keySet()) {
+			if(!(key instanceof Enum))
+				return null;
+			Class<?> keyType = ((Enum<?>) key).getDeclaringClass();
+			if(type == null)
+				type = keyType;
+			else if(type != keyType)
+				return null;
+		}
+		return type;
+	}
+
+	private static Object maskNull(Object key) {
+		return key == null ? NULL_KEY : key;
+	}
+
+	/** Returns the slot of {@code key}, or -1 if it is not in this map */
+	abstract int slotOf(Object key);
+
+	/** Returns the number of slots, some of which may be unused */
+	abstract int slotCount();
+
+	abstract boolean isUsed(int slot);
+
+	abstract K keyAt(int slot);
+
+	abstract V valueAt(int slot);
+
+	@Override
+	public V get(Object key) {
+		int slot = slotOf(key);
+		return slot == -1 ? null : valueAt(slot);
+	}
+
+	@Override
+	public V getOrDefault(Object key, V defaultValue) {
+		int slot = slotOf(key);
+		return slot == -1 ? defaultValue : valueAt(slot);
+	}
+
+	@Override
+	public boolean containsKey(Object key) {
+		return slotOf(key) != -1;
+	}
+
+	@Override
+	public void forEach(BiConsumer<? super K, ? super V> action) {
+		int slots = slotCount();
+		for(int i = 0; i < slots; i++) {
+			if(isUsed(i))
+				action.accept(keyAt(i), valueAt(i));
+		}
+	}
+
+	@Override
+	public Set<Entry<K, V>> entrySet() {
+		if(entrySet == null) {
+			entrySet = new AbstractSet<>() {
+				@Override
+				public Iterator<Entry<K, V>> iterator() {
+					return new EntryIterator();
+				}
+
+				@Override
+				public int size() {
+					return FrozenMap.this.size();
+				}
+			};
+		}
+		return entrySet;
+	}
+
+	private class EntryIterator implements Iterator<Entry<K, V>> {
+
+		private final int slots = slotCount();
+		private int next = advance(0);
+
+		private int advance(int slot) {
+			while(slot < slots && !isUsed(slot))
+				slot++;
+			return slot;
+		}
+
+		@Override
+		public boolean hasNext() {
+			return next < slots;
+		}
+
+		@Override
+		public Entry<K, V> next() {
+			if(next >= slots)
+				throw new NoSuchElementException();
+			Entry<K, V> entry = new SimpleImmutableEntry<>(keyAt(next), valueAt(next));
+			next = advance(next + 1);
+			return entry;
+		}
+	}
+
+	/** Values indexed by the ordinal of their keys */
+	private static class EnumKeys<K, V> extends FrozenMap<K, V> {
+
+		private static final Object ABSENT = new Object();
+
+		private final Class<?> type;
+		private final Object[] keys;
+		private final Object[] values;
+		private final int size;
+
+		EnumKeys(Map<? extends K, ? extends V> map, Class<?> type) {
+			this.type = type;
+			this.keys = type.getEnumConstants();
+			this.values = new Object[keys.length];
+			Arrays.fill(values, ABSENT);
+			map.forEach((k, v) -> values[((Enum<?>) k).ordinal()] = v);
+			this.size = map.size();
+		}
+
+		@Override
+		int slotOf(Object key) {
+			if(!(key instanceof Enum) || ((Enum<?>) key).getDeclaringClass() != type)
+				return -1;
+			int slot = ((Enum<?>) key).ordinal();
+			return values[slot] == ABSENT ? -1 : slot;
+		}
+
+		@Override
+		int slotCount() {
+			return values.length;
+		}
+
+		@Override
+		boolean isUsed(int slot) {
+			return values[slot] != ABSENT;
+		}
+
+		@SuppressWarnings("unchecked")
+		@Override
+		K keyAt(int slot) {
+			return (K) keys[slot];
+		}
+
+		@SuppressWarnings("unchecked")
+		@Override
+		V valueAt(int slot) {
+			return (V) values[slot];
+		}
+
+		@Override
+		public int size() {
+			return size;
+		}
+	}
+
+	/** Keys sorted by hash code, looked up by scanning the hash codes */
+	private static class SortedKeys<K, V> extends FrozenMap<K, V> {
+
+		private final int[] hashes;
+		private final Object[] keys;
+		private final Object[] values;
+
+		SortedKeys(Map<? extends K, ? extends V> map) {
+			int size = map.size();
+			Object[][] entries = new Object[size][];
+			int n = 0;
+			for(Entry<? extends K, ? extends V> e : map.entrySet())
+				entries[n++] = new Object[] { maskNull(e.getKey()), e.getValue() };
+			Arrays.sort(entries, (e1, e2) -> Integer.compare(e1[0].hashCode(), e2[0].hashCode()));
+			this.hashes = new int[size];
+			this.keys = new Object[size];
+			this.values = new Object[size];
+			for(int i = 0; i < size; i++) {
+				keys[i] = entries[i][0];
+				values[i] = entries[i][1];
+				hashes[i] = keys[i].hashCode();
+			}
+		}
+
+		@Override
+		int slotOf(Object key) {
+			Object k = maskNull(key);
+			int hash = k.hashCode();
+			int[] hashes = this.hashes;
+			int i = 0;
+			while(i < hashes.length && hashes[i] < hash)
+				i++;
+			for(; i < hashes.length && hashes[i] == hash; i++) {
+				if(keys[i] == k || keys[i].equals(k))
+					return i;
+			}
+			return -1;
+		}
+
+		@Override
+		int slotCount() {
+			return keys.length;
+		}
+
+		@Override
+		boolean isUsed(int slot) {
+			return true;
+		}
+
+		@SuppressWarnings("unchecked")
+		@Override
+		K keyAt(int slot) {
+			return keys[slot] == NULL_KEY ? null : (K) keys[slot];
+		}
+
+		@SuppressWarnings("unchecked")
+		@Override
+		V valueAt(int slot) {
+			return (V) values[slot];
+		}
+
+		@Override
+		public int size() {
+			return keys.length;
+		}
+	}
+
+	/**
+	 * Keys and values interleaved in an open-addressing table, the table is at
+	 * most half full and the hash codes of the keys are kept so that most
+	 * mismatching keys are skipped without calling {@code equals}.
+	 */
+	private static class HashedKeys<K, V> extends FrozenMap<K, V> {
+
+		/** key of slot i at 2*i, value at 2*i+1 */
+		private final Object[] table;
+		private final int[] hashes;
+		private final int mask;
+		private final int size;
+
+		HashedKeys(Map<? extends K, ? extends V> map) {
+			int capacity = OpenHashing.capacityFor(map.size() * 3 / 2);
+			this.table = new Object[capacity * 2];
+			this.hashes = new int[capacity];
+			this.mask = capacity - 1;
+			this.size = map.size();
+			for(Entry<? extends K, ? extends V> e : map.entrySet()) {
+				Object key = maskNull(e.getKey());
+				int hash = OpenHashing.mix(key);
+				int i = hash & mask;
+				while(table[2 * i] != null)
+					i = (i + 1) & mask;
+				table[2 * i] = key;
+				table[2 * i + 1] = e.getValue();
+				hashes[i] = hash;
+			}
+		}
+
+		@Override
+		int slotOf(Object key) {
+			Object k = maskNull(key);
+			Object[] table = this.table;
+			int hash = OpenHashing.mix(k);
+			for(int i = hash & mask; ; i = (i + 1) & mask) {
+				Object candidate = table[2 * i];
+				if(candidate == null)
+					return -1;
+				if(candidate == k || (hashes[i] == hash && candidate.equals(k)))
+					return i;
+			}
+		}
+
+		@Override
+		int slotCount() {
+			return mask + 1;
+		}
+
+		@Override
+		boolean isUsed(int slot) {
+			return table[2 * slot] != null;
+		}
+
+		@SuppressWarnings("unchecked")
+		@Override
+		K keyAt(int slot) {
+			Object key = table[2 * slot];
+			return key == NULL_KEY ? null : (K) key;
+		}
+
+		@SuppressWarnings("unchecked")
+		@Override
+		V valueAt(int slot) {
+			return (V) table[2 * slot + 1];
+		}
+
+		@Override
+		public int size() {
+			return size;
+		}
+	}
+
+}
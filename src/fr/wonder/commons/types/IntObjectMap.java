@@ -0,0 +1,222 @@
+package fr.wonder.commons.types;
+
+import java.util.Arrays;
+
+/**
+ * A hash map from {@code int} keys to objects.
+ * <p>
+ * Entries are stored in two parallel arrays using open addressing with linear
+ * probing, there is no per-entry object and keys are never boxed. Removals
+ * shift the following entries back instead of leaving tombstones, so lookups
+ * stay fast after many removals. Key {@code 0} is stored apart as it marks
+ * empty slots. Values may be null.
+ * <p>
+ * This class is not thread safe.
+ * <p>
+ * Example use case: <blockquote>
+ *
+ * <pre>
+ *   IntObjectMap&lt;Node&gt; nodesById = new IntObjectMap&lt;&gt;(nodes.size());
+ *   for(Node n : nodes)
+ *     nodesById.put(n.id, n);
+ *   Node parent = nodesById.get(n.parentId);
+ * </pre>
+ *
+ * </blockquote>
+ *
+ * @see fr.wonder.commons.utils.MapOperator#mapByInt(java.util.Collection, java.util.function.ToIntFunction, java.util.function.Function)
+ */
+public class IntObjectMap<V> {
+
+	/** Receives the entries of a map */
+	@FunctionalInterface
+	public interface EntryConsumer<V> {
+
+		void accept(int key, V value);
+
+	}
+
+	private int[] keys;
+	private Object[] values;
+	private int mask;
+	private int maxFill;
+	/** number of entries in the table, the zero key excluded */
+	private int tableSize;
+	private boolean hasZeroKey;
+	private V zeroValue;
+
+	/** Creates an empty map */
+	public IntObjectMap() {
+		this(0);
+	}
+
+	/** Creates an empty map able to hold {@code expectedSize} entries before growing */
+	public IntObjectMap(int expectedSize) {
+		allocate(OpenHashing.capacityFor(expectedSize));
+	}
+
+	private void allocate(int capacity) {
+		keys = new int[capacity];
+		values = new Object[capacity];
+		mask = capacity - 1;
+		maxFill = OpenHashing.maxFill(capacity);
+	}
+
+	public int size() {
+		return tableSize + (hasZeroKey ? 1 : 0);
+	}
+
+	public boolean isEmpty() {
+		return size() == 0;
+	}
+
+	/** Returns the slot of {@code key}, or -1 if it is not in the table */
+	private int slotOf(int key) {
+		int[] keys = this.keys;
+		for(int i = OpenHashing.mix(key) & mask; ; i = (i + 1) & mask) {
+			int k = keys[i];
+			if(k == key)
+				return i;
+			if(k == 0)
+				return -1;
+		}
+	}
+
+	public boolean containsKey(int key) {
+		return key == 0 ? hasZeroKey : slotOf(key) != -1;
+	}
+
+	/** Returns the value associated with {@code key}, or null */
+	public V get(int key) {
+		return getOrDefault(key, null);
+	}
+
+	/** Returns the value associated with {@code key}, or {@code defaultValue} if there is none */
+	@SuppressWarnings("unchecked")
+	public V getOrDefault(int key, V defaultValue) {
+		if(key == 0)
+			return hasZeroKey ? zeroValue : defaultValue;
+		int slot = slotOf(key);
+		return slot == -1 ? defaultValue : (V) values[slot];
+	}
+
+	/**
+	 * Associates {@code value} with {@code key}.
+	 *
+	 * @return the previous value associated with {@code key}, or null
+	 */
+	@SuppressWarnings("unchecked")
+	public V put(int key, V value) {
+		if(key == 0) {
+			V previous = zeroValue;
+			zeroValue = value;
+			hasZeroKey = true;
+			return previous;
+		}
+		int i = OpenHashing.mix(key) & mask;
+		for(int k; (k = keys[i]) != 0; i = (i + 1) & mask) {
+			if(k == key) {
+				V previous = (V) values[i];
+				values[i] = value;
+				return previous;
+			}
+		}
+		keys[i] = key;
+		values[i] = value;
+		if(++tableSize > maxFill)
+			rehash(OpenHashing.grow(keys.length));
+		return null;
+	}
+
+	/**
+	 * Removes the entry of {@code key}.
+	 *
+	 * @return the value that was associated with {@code key}, or null
+	 */
+	@SuppressWarnings("unchecked")
+	public V remove(int key) {
+		if(key == 0) {
+			V previous = zeroValue;
+			hasZeroKey = false;
+			zeroValue = null;
+			return previous;
+		}
+		int slot = slotOf(key);
+		if(slot == -1)
+			return null;
+		V previous = (V) values[slot];
+		shiftKeys(slot);
+		tableSize--;
+		return previous;
+	}
+
+	/** Fills the empty slot {@code gap} with the entries that probed past it */
+	private void shiftKeys(int gap) {
+		for(int i = (gap + 1) & mask; keys[i] != 0; i = (i + 1) & mask) {
+			int ideal = OpenHashing.mix(keys[i]) & mask;
+			if(((i - ideal) & mask) >= ((i - gap) & mask)) {
+				keys[gap] = keys[i];
+				values[gap] = values[i];
+				gap = i;
+			}
+		}
+		keys[gap] = 0;
+		values[gap] = null;
+	}
+
+	private void rehash(int capacity) {
+		int[] oldKeys = keys;
+		Object[] oldValues = values;
+		allocate(capacity);
+		for(int j = 0; j < oldKeys.length; j++) {
+			int key = oldKeys[j];
+			if(key == 0)
+				continue;
+			int i = OpenHashing.mix(key) & mask;
+			while(keys[i] != 0)
+				i = (i + 1) & mask;
+			keys[i] = key;
+			values[i] = oldValues[j];
+		}
+	}
+
+	public void clear() {
+		Arrays.fill(keys, 0);
+		Arrays.fill(values, null);
+		tableSize = 0;
+		hasZeroKey = false;
+		zeroValue = null;
+	}
+
+	/** Calls {@code consumer} for each entry of this map, in no particular order */
+	@SuppressWarnings("unchecked")
+	public void forEach(EntryConsumer<? super V> consumer) {
+		if(hasZeroKey)
+			consumer.accept(0, zeroValue);
+		for(int i = 0; i < keys.length; i++) {
+			if(keys[i] != 0)
+				consumer.accept(keys[i], (V) values[i]);
+		}
+	}
+
+	/** Returns the keys of this map, in no particular order */
+	public int[] keys() {
+		int[] array = new int[size()];
+		int n = 0;
+		if(hasZeroKey)
+			array[n++] = 0;
+		for(int k : keys) {
+			if(k != 0)
+				array[n++] = k;
+		}
+		return array;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder("{");
+		forEach((k, v) -> sb.append(sb.length() == 1 ? "" : ", ").append(k).append('=').append(v));
+		return sb.append('}').toString();
+	}
+
+}
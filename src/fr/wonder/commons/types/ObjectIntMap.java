@@ -0,0 +1,249 @@
+package fr.wonder.commons.types;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A hash map from objects to {@code int} values.
+ * <p>
+ * Entries are stored in two parallel arrays using open addressing with linear
+ * probing, there is no per-entry object and values are never boxed. Removals
+ * shift the following entries back instead of leaving tombstones, so lookups
+ * stay fast after many removals. The {@code null} key is supported and stored
+ * apart as it marks empty slots.
+ * <p>
+ * As values are primitives, {@link #get(Object)} cannot return null for
+ * missing keys and returns 0 instead, use {@link #containsKey(Object)} or
+ * {@link #getOrDefault(Object, int)} to tell missing keys apart.
+ * <p>
+ * This class is not thread safe.
+ * <p>
+ * Example use case: <blockquote>
+ *
+ * <pre>
+ *   ObjectIntMap&lt;String&gt; occurrences = new ObjectIntMap&lt;&gt;();
+ *   for(String word : words)
+ *     occurrences.addTo(word, 1);
+ * </pre>
+ *
+ * </blockquote>
+ *
+ * @see fr.wonder.commons.utils.MapOperator#mapToInt(java.util.Collection, java.util.function.Function, java.util.function.ToIntFunction)
+ */
+public class ObjectIntMap<K> {
+
+	/** Receives the entries of a map */
+	@FunctionalInterface
+	public interface EntryConsumer<K> {
+
+		void accept(K key, int value);
+
+	}
+
+	private Object[] keys;
+	private int[] values;
+	private int mask;
+	private int maxFill;
+	/** number of entries in the table, the null key excluded */
+	private int tableSize;
+	private boolean hasNullKey;
+	private int nullValue;
+
+	/** Creates an empty map */
+	public ObjectIntMap() {
+		this(0);
+	}
+
+	/** Creates an empty map able to hold {@code expectedSize} entries before growing */
+	public ObjectIntMap(int expectedSize) {
+		allocate(OpenHashing.capacityFor(expectedSize));
+	}
+
+	private void allocate(int capacity) {
+		keys = new Object[capacity];
+		values = new int[capacity];
+		mask = capacity - 1;
+		maxFill = OpenHashing.maxFill(capacity);
+	}
+
+	public int size() {
+		return tableSize + (hasNullKey ? 1 : 0);
+	}
+
+	public boolean isEmpty() {
+		return size() == 0;
+	}
+
+	/** Returns the slot of {@code key}, or -1 if it is not in the table */
+	private int slotOf(Object key) {
+		Object[] keys = this.keys;
+		for(int i = OpenHashing.mix(key) & mask; ; i = (i + 1) & mask) {
+			Object k = keys[i];
+			if(k == null)
+				return -1;
+			if(k == key || k.equals(key))
+				return i;
+		}
+	}
+
+	public boolean containsKey(Object key) {
+		return key == null ? hasNullKey : slotOf(key) != -1;
+	}
+
+	/** Returns the value associated with {@code key}, or 0 if there is none */
+	public int get(Object key) {
+		return getOrDefault(key, 0);
+	}
+
+	/** Returns the value associated with {@code key}, or {@code defaultValue} if there is none */
+	public int getOrDefault(Object key, int defaultValue) {
+		if(key == null)
+			return hasNullKey ? nullValue : defaultValue;
+		int slot = slotOf(key);
+		return slot == -1 ? defaultValue : values[slot];
+	}
+
+	/**
+	 * Associates {@code value} with {@code key}.
+	 *
+	 * @return the previous value associated with {@code key}, or 0
+	 */
+	public int put(K key, int value) {
+		if(key == null) {
+			int previous = nullValue;
+			nullValue = value;
+			hasNullKey = true;
+			return previous;
+		}
+		int i = OpenHashing.mix(key) & mask;
+		for(Object k; (k = keys[i]) != null; i = (i + 1) & mask) {
+			if(k == key || k.equals(key)) {
+				int previous = values[i];
+				values[i] = value;
+				return previous;
+			}
+		}
+		insert(i, key, value);
+		return 0;
+	}
+
+	/**
+	 * Adds {@code increment} to the value associated with {@code key}, missing
+	 * keys are associated with {@code increment}.
+	 *
+	 * @return the new value associated with {@code key}
+	 */
+	public int addTo(K key, int increment) {
+		if(key == null) {
+			nullValue = hasNullKey ? nullValue + increment : increment;
+			hasNullKey = true;
+			return nullValue;
+		}
+		int i = OpenHashing.mix(key) & mask;
+		for(Object k; (k = keys[i]) != null; i = (i + 1) & mask) {
+			if(k == key || k.equals(key))
+				return values[i] += increment;
+		}
+		insert(i, key, increment);
+		return increment;
+	}
+
+	private void insert(int slot, Object key, int value) {
+		keys[slot] = key;
+		values[slot] = value;
+		if(++tableSize > maxFill)
+			rehash(OpenHashing.grow(keys.length));
+	}
+
+	/**
+	 * Removes the entry of {@code key}.
+	 *
+	 * @return the value that was associated with {@code key}, or 0
+	 */
+	public int remove(Object key) {
+		if(key == null) {
+			int previous = hasNullKey ? nullValue : 0;
+			hasNullKey = false;
+			nullValue = 0;
+			return previous;
+		}
+		int slot = slotOf(key);
+		if(slot == -1)
+			return 0;
+		int previous = values[slot];
+		shiftKeys(slot);
+		tableSize--;
+		return previous;
+	}
+
+	/** Fills the empty slot {@code gap} with the entries that probed past it */
+	private void shiftKeys(int gap) {
+		for(int i = (gap + 1) & mask; keys[i] != null; i = (i + 1) & mask) {
+			int ideal = OpenHashing.mix(keys[i]) & mask;
+			if(((i - ideal) & mask) >= ((i - gap) & mask)) {
+				keys[gap] = keys[i];
+				values[gap] = values[i];
+				gap = i;
+			}
+		}
+		keys[gap] = null;
+		values[gap] = 0;
+	}
+
+	private void rehash(int capacity) {
+		Object[] oldKeys = keys;
+		int[] oldValues = values;
+		allocate(capacity);
+		for(int j = 0; j < oldKeys.length; j++) {
+			Object key = oldKeys[j];
+			if(key == null)
+				continue;
+			int i = OpenHashing.mix(key) & mask;
+			while(keys[i] != null)
+				i = (i + 1) & mask;
+			keys[i] = key;
+			values[i] = oldValues[j];
+		}
+	}
+
+	public void clear() {
+		Arrays.fill(keys, null);
+		Arrays.fill(values, 0);
+		tableSize = 0;
+		hasNullKey = false;
+		nullValue = 0;
+	}
+
+	/** Calls {@code consumer} for each entry of this map, in no particular order */
+	@SuppressWarnings("unchecked")
+	public void forEach(EntryConsumer<? super K> consumer) {
+		if(hasNullKey)
+			consumer.accept(null, nullValue);
+		for(int i = 0; i < keys.length; i++) {
+			if(keys[i] != null)
+				consumer.accept((K) keys[i], values[i]);
+		}
+	}
+
+	/** Returns the keys of this map, in no particular order */
+	@SuppressWarnings("unchecked")
+	public List<K> keys() {
+		List<K> list = new ArrayList<>(size());
+		if(hasNullKey)
+			list.add(null);
+		for(Object k : keys) {
+			if(k != null)
+				list.add((K) k);
+		}
+		return list;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder("{");
+		forEach((k, v) -> sb.append(sb.length() == 1 ? "" : ", ").append(k).append('=').append(v));
+		return sb.append('}').toString();
+	}
+
+}
@@ -0,0 +1,56 @@
+package fr.wonder.commons.types;
+
+/**
+ * Shared functions of the open-addressing maps of this package.
+ * <p>
+ * Tables have a power of two capacity and are filled up to
+ * {@link #LOAD_FACTOR}, hashes are scrambled before being masked so that keys
+ * with regular patterns (sequential ids, multiples of a power of two...) are
+ * spread over the table.
+ */
+class OpenHashing {
+
+	static final float LOAD_FACTOR = .75f;
+	static final int MAX_CAPACITY = 1 << 30;
+
+	private static final int INT_PHI = 0x9E3779B9;
+	private static final long LONG_PHI = 0x9E3779B97F4A7C15L;
+
+	/** Returns the capacity of a table able to hold {@code expectedSize} entries without growing */
+	static int capacityFor(int expectedSize) {
+		if(expectedSize < 0)
+			throw new IllegalArgumentException("Negative size " + expectedSize);
+		long needed = (long) Math.ceil(expectedSize / LOAD_FACTOR);
+		if(needed > MAX_CAPACITY)
+			throw new IllegalArgumentException("Too many entries " + expectedSize);
+		return Math.max(2, Integer.highestOneBit((int) Math.max(needed - 1, 1)) << 1);
+	}
+
+	/** Returns the number of entries a table of the given capacity can hold */
+	static int maxFill(int capacity) {
+		return Math.min(capacity - 1, (int) (capacity * LOAD_FACTOR));
+	}
+
+	static int mix(int key) {
+		int h = key * INT_PHI;
+		return h ^ (h >>> 16);
+	}
+
+	static int mix(long key) {
+		long h = key * LONG_PHI;
+		h ^= h >>> 32;
+		return (int) (h ^ (h >>> 16));
+	}
+
+	static int mix(Object key) {
+		return mix(key.hashCode());
+	}
+
+	/** Returns the capacity of a full table grown */
+	static int grow(int capacity) {
+		if(capacity >= MAX_CAPACITY)
+			throw new IllegalStateException("Map is full");
+		return capacity << 1;
+	}
+
+}
@@ -0,0 +1,96 @@
+package fr.wonder.commons.utils;
+
+/**
+ * State machine recognizing ANSI escape sequences in a stream of characters or
+ * bytes, used to strip them.
+ * <p>
+ * Recognized sequences are:
+ * <ul>
+ * <li>CSI sequences, {@code ESC [} followed by parameter and intermediate
+ * characters and a final character in {@code @-~} (colors, cursor moves...)</li>
+ * <li>OSC, DCS, SOS, PM and APC strings, {@code ESC ]}, {@code ESC P},
+ * {@code ESC X}, {@code ESC ^} and {@code ESC _} up to the string terminator
+ * {@code ESC \} or a {@code BEL}</li>
+ * <li>other escape sequences, {@code ESC} followed by intermediate characters
+ * and a final character in {@code 0-~}</li>
+ * </ul>
+ * A sequence interrupted by an unexpected character is dropped and the
+ * character is kept. Since all the characters of a sequence (but the content
+ * of strings) are ASCII, UTF-8 encoded texts can be parsed byte per byte.
+ */
+class AnsiParser {
+
+	static final int ESC = 0x1b;
+	private static final int BEL = 0x07;
+
+	private static final int
+			GROUND = 0,
+			ESCAPE = 1,
+			ESCAPE_INTERMEDIATE = 2,
+			CSI = 3,
+			STRING = 4,
+			STRING_ESCAPE = 5;
+
+	private int state = GROUND;
+
+	/** Returns true if {@code c} is text, false if it is part of an escape sequence */
+	@SuppressWarnings("fallthrough")
+	boolean accept(int c) {
+		if(state == GROUND && c != ESC)
+			return true;
+		switch(state) {
+		case ESCAPE:
+			if(c == '[') {
+				state = CSI;
+				return false;
+			}
+			if(c == ']' || c == 'P' || c == 'X' || c == '^' || c == '_') {
+				state = STRING;
+				return false;
+			}
+			// fallthrough, ESC followed by an intermediate or final byte
+		case ESCAPE_INTERMEDIATE:
+			if(c >= 0x20 && c <= 0x2f) {
+				state = ESCAPE_INTERMEDIATE;
+				return false;
+			}
+			if(c >= 0x30 && c <= 0x7e) {
+				state = GROUND;
+				return false;
+			}
+			break;
+		case CSI:
+			if(c >= 0x20 && c <= 0x3f)
+				return false;
+			if(c >= 0x40 && c <= 0x7e) {
+				state = GROUND;
+				return false;
+			}
+			break;
+		case STRING:
+			if(c == BEL)
+				state = GROUND;
+			else if(c == ESC)
+				state = STRING_ESCAPE;
+			return false;
+		case STRING_ESCAPE:
+			if(c == '\\') {
+				state = GROUND;
+				return false;
+			}
+			// the escape ended the string and starts a new sequence
+			state = ESCAPE;
+			return accept(c);
+		default:
+			break;
+		}
+		// the current sequence is malformed or c is an escape in ground state
+		if(c == ESC) {
+			state = ESCAPE;
+			return false;
+		}
+		state = GROUND;
+		return true;
+	}
+
+}
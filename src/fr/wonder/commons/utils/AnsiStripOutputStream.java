@@ -0,0 +1,53 @@
+package fr.wonder.commons.utils;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * An output stream removing ANSI escape sequences from the UTF-8 (or ASCII)
+ * bytes written to it before passing them to the underlying stream. Sequences
+ * may be split across multiple writes.
+ * <p>
+ * Example use case, writing the logs of an {@code AnsiLogger} to a file:
+ * <blockquote>
+ *
+ * <pre>
+ *   logger.redirectOut(new PrintStream(new AnsiStripOutputStream(new FileOutputStream(logFile))));
+ * </pre>
+ *
+ * </blockquote>
+ *
+ * @see ColorUtils#stripAnsi(CharSequence, Appendable)
+ */
+public class AnsiStripOutputStream extends FilterOutputStream {
+
+	private final AnsiParser parser = new AnsiParser();
+
+	public AnsiStripOutputStream(OutputStream out) {
+		super(out);
+	}
+
+	@Override
+	public void write(int b) throws IOException {
+		if(parser.accept(b & 0xff))
+			out.write(b);
+	}
+
+	@Override
+	public void write(byte[] b, int off, int len) throws IOException {
+		if(off < 0 || len < 0 || off + len > b.length)
+			throw new IndexOutOfBoundsException("Range [" + off + "," + (off + len) + ") out of bounds for length " + b.length);
+		int start = off;
+		for(int i = off; i < off + len; i++) {
+			if(!parser.accept(b[i] & 0xff)) {
+				if(start != i)
+					out.write(b, start, i - start);
+				start = i + 1;
+			}
+		}
+		if(start != off + len)
+			out.write(b, start, off + len - start);
+	}
+
+}
@@ -0,0 +1,285 @@
+package fr.wonder.commons.utils;
+
+import java.util.ArrayList;
+import java.util.Formattable;
+import java.util.Formatter;
+import java.util.List;
+import java.util.Map;
+import java.util.MissingFormatArgumentException;
+import java.util.UnknownFormatConversionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A compiled {@link StringUtils#formatAnsi(String, Object...) formatAnsi}
+ * format string.
+ * <p>
+ * The format is parsed once into literal segments, in which color codes are
+ * already replaced by their ANSI sequences, and argument specifiers. Rendering
+ * a template only appends the literals and the formatted arguments to a
+ * builder, {@code %s} specifiers without flags are formatted without going
+ * through a {@link Formatter}. Templates are immutable and can be used by
+ * multiple threads.
+ * <p>
+ * Color codes are:
+ * <ul>
+ * <li>{@code $R} reset, {@code $B} black, {@code $w} white, {@code $r} red,
+ * {@code $g} green, {@code $b} blue, {@code $y} yellow, {@code $p} purple,
+ * {@code $c} cyan, {@code $l} light green</li>
+ * <li>{@code $Nf} and {@code $Nb} with {@code N} a number from 0 to 255, the
+ * foreground or background color {@code N} of the 256 colors palette</li>
+ * <li>{@code $$} a single {@code $}</li>
+ * </ul>
+ * Color codes found in formatted arguments are also replaced. A reset sequence
+ * is always appended to the rendered text.
+ * <p>
+ * Example use case: <blockquote>
+ *
+ * <pre>
+ *   AnsiTemplate line = AnsiTemplate.compile("$g%-10s$R %5d $196f%s");
+ *   for(Entry e : entries)
+ *     System.out.println(line.format(e.name, e.count, e.error));
+ * </pre>
+ *
+ * </blockquote>
+ */
+public class AnsiTemplate {
+
+	private static final int CACHE_SIZE = 256;
+	private static final Map<String, AnsiTemplate> cache = new ConcurrentHashMap<>();
+
+	/** %[argument_index$][flags][width][.precision][t]conversion */
+	private static final Pattern SPECIFIER = Pattern
+			.compile("%(\\d+\\$)?([-#+ 0,(<]*)?(\\d+)?(\\.\\d+)?([tT])?([a-zA-Z%])");
+
+	private static final String CONVERSIONS = "bBhHsScCdoxXeEfgGaA%n";
+
+	private static final String RESET = "\u001b[0m";
+	private static final String[] FOREGROUNDS = new String[256], BACKGROUNDS = new String[256];
+	static {
+		for(int i = 0; i < 256; i++) {
+			FOREGROUNDS[i] = "\u001b[38;5;" + i + "m";
+			BACKGROUNDS[i] = "\u001b[48;5;" + i + "m";
+		}
+	}
+
+	/** Builders retained by threads are dropped if they grew larger than this */
+	private static final int MAX_RETAINED_CAPACITY = 1 << 16;
+	private static final ThreadLocal<RenderContext> contexts = ThreadLocal.withInitial(RenderContext::new);
+
+	/** literals[i] comes before argument i, there is one more literal than arguments */
+	private final String[] literals;
+	/** the argument specifiers rewritten with explicit indices, null for plain {@code %s} */
+	private final String[] specifiers;
+	private final int[] argIndices;
+
+	private AnsiTemplate(String[] literals, String[] specifiers, int[] argIndices) {
+		this.literals = literals;
+		this.specifiers = specifiers;
+		this.argIndices = argIndices;
+	}
+
+	/**
+	 * Returns the compiled template of {@code format}, templates are cached so
+	 * compiling the same format multiple times is cheap.
+	 *
+	 * @throws IllegalArgumentException if the format contains an undefined color
+	 *         code or an invalid format specifier
+	 */
+	public static AnsiTemplate compile(String format) {
+		AnsiTemplate template = cache.get(format);
+		if(template == null) {
+			template = parse(format);
+			if(cache.size() >= CACHE_SIZE)
+				cache.clear();
+			cache.put(format, template);
+		}
+		return template;
+	}
+
+	private static AnsiTemplate parse(String format) {
+		List<String> literals = new ArrayList<>();
+		List<String> specifiers = new ArrayList<>();
+		List<Integer> indices = new ArrayList<>();
+		StringBuilder literal = new StringBuilder();
+		Matcher m = SPECIFIER.matcher(format);
+		int ordinaryIndex = 0, lastIndex = -1;
+		int length = format.length();
+		for(int i = 0; i < length; ) {
+			char c = format.charAt(i);
+			if(c == '$') {
+				i = appendColor(format, i, literal);
+			} else if(c != '%') {
+				literal.append(c);
+				i++;
+			} else if(!m.region(i, length).lookingAt()) {
+				throw new UnknownFormatConversionException(i+1 < length ? format.substring(i+1, i+2) : "%");
+			} else {
+				i = m.end();
+				String conversion = m.group(6);
+				if(m.group(5) == null && CONVERSIONS.indexOf(conversion) == -1)
+					throw new UnknownFormatConversionException(conversion);
+				if(conversion.equals("%") || conversion.equals("n")) {
+					// no argument, format once
+					literal.append(String.format(m.group()));
+					continue;
+				}
+				String flags = m.group(2) == null ? "" : m.group(2);
+				int index;
+				if(m.group(1) != null)
+					index = Integer.parseInt(m.group(1).substring(0, m.group(1).length()-1)) - 1;
+				else if(flags.indexOf('<') != -1)
+					index = lastIndex;
+				else
+					index = ordinaryIndex++;
+				if(index < 0)
+					throw new MissingFormatArgumentException(m.group());
+				lastIndex = index;
+				boolean plain = conversion.equals("s") && flags.isEmpty() &&
+						m.group(3) == null && m.group(4) == null && m.group(5) == null;
+				literals.add(literal.toString());
+				literal.setLength(0);
+				specifiers.add(plain ? null : "%" + (index+1) + "$" + flags.replace("<", "") +
+						nonNull(m.group(3)) + nonNull(m.group(4)) + nonNull(m.group(5)) + conversion);
+				indices.add(index);
+			}
+		}
+		literal.append(RESET);
+		literals.add(literal.toString());
+		int[] argIndices = new int[indices.size()];
+		for(int i = 0; i < argIndices.length; i++)
+			argIndices[i] = indices.get(i);
+		return new AnsiTemplate(
+				literals.toArray(String[]::new),
+				specifiers.toArray(String[]::new),
+				argIndices);
+	}
+
+	private static String nonNull(String s) {
+		return s == null ? "" : s;
+	}
+
+	/**
+	 * Appends the ANSI sequence of the color code starting at {@code text[i]}
+	 * (a {@code $}) and returns the index following the code.
+	 */
+	private static int appendColor(CharSequence text, int i, StringBuilder out) {
+		int length = text.length();
+		if(i+1 == length)
+			throw new IllegalArgumentException("Undefined color sequence $");
+		char c = text.charAt(i+1);
+		if(StringUtils.isDigitChar(c)) {
+			int end = i+1, color = 0;
+			while(end < length && end < i+4 && StringUtils.isDigitChar(text.charAt(end)))
+				color = color * 10 + text.charAt(end++) - '0';
+			char kind = end < length ? text.charAt(end) : 0;
+			if((kind != 'f' && kind != 'b') || color > 255)
+				throw new IllegalArgumentException("Undefined color sequence " + text.subSequence(i, Math.min(end+1, length)));
+			out.append(kind == 'f' ? FOREGROUNDS[color] : BACKGROUNDS[color]);
+			return end+1;
+		}
+		switch(c) {
+		case 'R': out.append(RESET); break;            // R - reset
+		case 'B': out.append(FOREGROUNDS[0]); break;   // B - black
+		case 'w': out.append(FOREGROUNDS[255]); break; // w - white
+		case 'r': out.append(FOREGROUNDS[1]); break;   // r - red
+		case 'g': out.append(FOREGROUNDS[2]); break;   // g - green
+		case 'b': out.append(FOREGROUNDS[4]); break;   // b - blue
+		case 'y': out.append(FOREGROUNDS[3]); break;   // y - yellow
+		case 'p': out.append(FOREGROUNDS[93]); break;  // p - purple
+		case 'c': out.append(FOREGROUNDS[6]); break;   // c - cyan
+		case 'l': out.append(FOREGROUNDS[10]); break;  // l - light green
+		case '$': out.append('$'); break;
+		default: throw new IllegalArgumentException("Undefined color sequence $" + c);
+		}
+		return i+2;
+	}
+
+	/** Appends {@code text} replacing its color codes */
+	private static void appendColored(CharSequence text, StringBuilder out) {
+		int length = text.length();
+		int start = 0;
+		for(int i = 0; i < length; ) {
+			if(text.charAt(i) == '$') {
+				out.append(text, start, i);
+				i = start = appendColor(text, i, out);
+			} else {
+				i++;
+			}
+		}
+		out.append(text, start, length);
+	}
+
+	/**
+	 * Formats the arguments using this template.
+	 *
+	 * @throws IllegalArgumentException if an argument contains an undefined
+	 *         color code or does not match its format specifier
+	 */
+	public String format(Object... args) {
+		RenderContext context = contexts.get();
+		// arguments may call formatAnsi in their toString method
+		if(context.inUse)
+			context = new RenderContext();
+		context.inUse = true;
+		try {
+			StringBuilder out = context.out;
+			out.setLength(0);
+			render(out, context, args);
+			String result = out.toString();
+			if(out.capacity() > MAX_RETAINED_CAPACITY)
+				context.out = new StringBuilder();
+			return result;
+		} finally {
+			context.inUse = false;
+		}
+	}
+
+	/**
+	 * Same as {@link #format(Object...)} but appends the text to {@code out}.
+	 *
+	 * @return {@code out}
+	 */
+	public StringBuilder formatTo(StringBuilder out, Object... args) {
+		RenderContext context = contexts.get();
+		if(context.inUse)
+			context = new RenderContext();
+		context.inUse = true;
+		try {
+			render(out, context, args);
+			return out;
+		} finally {
+			context.inUse = false;
+		}
+	}
+
+	private void render(StringBuilder out, RenderContext context, Object[] args) {
+		out.append(literals[0]);
+		for(int i = 0; i < argIndices.length; i++) {
+			int index = argIndices[i];
+			if(index >= args.length)
+				throw new MissingFormatArgumentException(specifiers[i] == null ? "%s" : specifiers[i]);
+			Object arg = args[index];
+			if(specifiers[i] == null && !(arg instanceof Formattable)) {
+				appendColored(String.valueOf(arg), out);
+			} else {
+				StringBuilder formatted = context.argument;
+				formatted.setLength(0);
+				context.formatter.format(specifiers[i] == null ? "%" + (index+1) + "$s" : specifiers[i], args);
+				appendColored(formatted, out);
+			}
+			out.append(literals[i+1]);
+		}
+	}
+
+	private static class RenderContext {
+
+		private StringBuilder out = new StringBuilder();
+		private final StringBuilder argument = new StringBuilder();
+		private final Formatter formatter = new Formatter(argument);
+		private boolean inUse;
+
+	}
+
+}
@@ -0,0 +1,179 @@
+package fr.wonder.commons.utils;
+
+import java.lang.reflect.Array;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * An ArrayEditor collects a sequence of edits (insertions, removals and
+ * replacements) on an array and applies them all at once in a single pass,
+ * creating exactly one new array.
+ * <p>
+ * All indices given to the editor refer to the <b>original</b> array, edits
+ * do not shift the indices of the following ones. Insertions made at the same
+ * index are applied in the order they were recorded, before any removal or
+ * replacement starting at that index. Removed and replaced ranges cannot
+ * overlap.
+ * <p>
+ * Example use case: <blockquote>
+ *
+ * <pre>
+ *   String[] array = { "a", "b", "c", "d" };
+ *
+ *   array = ArrayOperator.edit(array)
+ *     .insert(0, "z")
+ *     .remove(1)
+ *     .set(3, "e")
+ *     .insert(4, "f")
+ *     .apply();
+ *
+ *   // array is { "z", "a", "c", "e", "f" }
+ * </pre>
+ *
+ * </blockquote>
+ *
+ * This is to be preferred over repeated calls to the static methods of
+ * {@link ArrayOperator} when more than a couple of edits are made to the same
+ * array, each of these creating a new copy of the array.
+ */
+public class ArrayEditor<T> {
+
+	private final T[] source;
+	private final List<Edit> edits = new ArrayList<>();
+
+	private int insertedCount, removedCount;
+	private boolean sorted = true;
+
+	/** see {@link ArrayEditor} */
+	public ArrayEditor(T[] source) {
+		this.source = source;
+	}
+
+	/**
+	 * Inserts elements before the element at index {@code i} of the original
+	 * array, {@code i} may be the length of the array to append elements.
+	 */
+	@SafeVarargs
+	@SuppressWarnings("varargs")
+	public final ArrayEditor<T> insert(int i, T... ts) {
+		return addEdit(i, 0, Arrays.copyOf(ts, ts.length, Object[].class));
+	}
+
+	/** Appends elements at the end of the array */
+	@SafeVarargs
+	@SuppressWarnings("varargs")
+	public final ArrayEditor<T> append(T... ts) {
+		return addEdit(source.length, 0, Arrays.copyOf(ts, ts.length, Object[].class));
+	}
+
+	/** Removes the element at index {@code i} of the original array */
+	public ArrayEditor<T> remove(int i) {
+		return remove(i, 1);
+	}
+
+	/** Removes {@code count} elements starting at index {@code i} of the original array */
+	public ArrayEditor<T> remove(int i, int count) {
+		return addEdit(i, count, null);
+	}
+
+	/** Replaces the element at index {@code i} of the original array */
+	public ArrayEditor<T> set(int i, T t) {
+		return addEdit(i, 1, new Object[] { t });
+	}
+
+	/**
+	 * Replaces {@code count} elements starting at index {@code i} of the
+	 * original array by the given elements, {@code ts} does not need to contain
+	 * {@code count} elements.
+	 */
+	@SafeVarargs
+	@SuppressWarnings("varargs")
+	public final ArrayEditor<T> replace(int i, int count, T... ts) {
+		return addEdit(i, count, Arrays.copyOf(ts, ts.length, Object[].class));
+	}
+
+	private ArrayEditor<T> addEdit(int index, int removed, Object[] inserted) {
+		if(removed < 0)
+			throw new IndexOutOfBoundsException("Cannot remove less than zero elements");
+		if(index < 0 || index + removed > source.length)
+			throw new IndexOutOfBoundsException("Range [" + index + "," + (index+removed) +
+					") out of bounds for length " + source.length);
+		if(inserted != null && inserted.length == 0)
+			inserted = null;
+		if(removed == 0 && inserted == null)
+			return this;
+		Edit edit = new Edit(index, removed, inserted, edits.size());
+		if(!edits.isEmpty() && edit.compareTo(edits.get(edits.size()-1)) < 0)
+			sorted = false;
+		edits.add(edit);
+		removedCount += removed;
+		insertedCount += inserted == null ? 0 : inserted.length;
+		return this;
+	}
+
+	/** Returns the length of the array that will be created by {@link #apply()} */
+	public int resultLength() {
+		return source.length - removedCount + insertedCount;
+	}
+
+	/**
+	 * Applies all recorded edits and returns the resulting array. If no edit
+	 * was recorded the original array is returned. The editor is left untouched
+	 * and may be applied again.
+	 *
+	 * @throws IllegalStateException if two removed or replaced ranges overlap
+	 */
+	@SuppressWarnings("unchecked")
+	public T[] apply() {
+		if(edits.isEmpty())
+			return source;
+		List<Edit> edits = this.edits;
+		if(!sorted) {
+			// sorted on a copy, the editor is left untouched
+			edits = new ArrayList<>(edits);
+			edits.sort(null);
+		}
+		T[] result = (T[]) Array.newInstance(source.getClass().componentType(), resultLength());
+		int read = 0, write = 0;
+		for(Edit e : edits) {
+			if(e.index < read)
+				throw new IllegalStateException("Overlapping edits at index " + e.index);
+			int kept = e.index - read;
+			System.arraycopy(source, read, result, write, kept);
+			write += kept;
+			if(e.inserted != null) {
+				System.arraycopy(e.inserted, 0, result, write, e.inserted.length);
+				write += e.inserted.length;
+			}
+			read = e.index + e.removed;
+		}
+		System.arraycopy(source, read, result, write, source.length - read);
+		return result;
+	}
+
+	private static class Edit implements Comparable<Edit> {
+
+		private final int index, removed, order;
+		private final Object[] inserted;
+
+		private Edit(int index, int removed, Object[] inserted, int order) {
+			this.index = index;
+			this.removed = removed;
+			this.inserted = inserted;
+			this.order = order;
+		}
+
+		@Override
+		public int compareTo(Edit o) {
+			if(index != o.index)
+				return Integer.compare(index, o.index);
+			// pure insertions go first, then removals at the same index
+			if((removed == 0) != (o.removed == 0))
+				return removed == 0 ? -1 : 1;
+			return Integer.compare(order, o.order);
+		}
+
+	}
+
+}
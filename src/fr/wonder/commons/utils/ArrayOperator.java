@@ -8,6 +8,7 @@ import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
 import java.util.function.BiFunction;
+import java.util.function.BinaryOperator;
 import java.util.function.Function;
 import java.util.function.IntFunction;
 import java.util.function.Predicate;
@@ -28,6 +29,10 @@ import java.util.function.Predicate;
  * array object, the static methods may or may not return the given array,
  * depending on if a change was necessary or not.
  * <p>
+ * The {@code parallel*} methods split the work on the common fork/join pool
+ * when the array is large enough, the functions given to them must be safe to
+ * call from multiple threads and should not depend on the iteration order.
+ * <p>
  * Example use case: <blockquote>
  * 
  * <pre>
@@ -77,6 +82,22 @@ public class ArrayOperator<T> {
 	private ArrayOperator(List<T> array) {
 		this.array = array;
 	}
+	
+	/**
+	 * Returns a lazy {@link ArrayPipeline} over the given array, operations
+	 * applied to the pipeline are fused and only executed once it is finished.
+	 */
+	public static <T> ArrayPipeline<T> lazy(T[] array) {
+		return new ArrayPipeline<>(array);
+	}
+	
+	/**
+	 * Returns a lazy {@link ArrayPipeline} reading the elements of this operator,
+	 * operations applied to the pipeline do not modify this operator.
+	 */
+	public ArrayPipeline<T> lazy() {
+		return new ArrayPipeline<>(array);
+	}
 
 	public int size() {
 		return array.size();
@@ -126,8 +147,7 @@ public class ArrayOperator<T> {
 		if(ts.length == 0) return array;
 		int al = array.length;
 		array = Arrays.copyOf(array, array.length + ts.length);
-		for(int i = 0; i < ts.length; i++)
-			array[al + i] = ts[i];
+		System.arraycopy(ts, 0, array, al, ts.length);
 		return array;
 	}
 
@@ -183,11 +203,25 @@ public class ArrayOperator<T> {
 	}
 
 	public static <T> T[] addAt(int i, T[] array, T t) {
-		array = Arrays.copyOf(array, array.length + 1);
-		for (int j = array.length - 1; j > i; j--)
-			array[j] = array[j - 1];
-		array[i] = t;
-		return array;
+		if (i < 0 || i > array.length)
+			throw new IndexOutOfBoundsException("Index " + i + " out of bounds for length " + array.length);
+		T[] a = newArray(array, array.length + 1);
+		System.arraycopy(array, 0, a, 0, i);
+		a[i] = t;
+		System.arraycopy(array, i, a, i + 1, array.length - i);
+		return a;
+	}
+	
+	public static <T> T[] addAt(int i, T[] array, T[] ts) {
+		if (i < 0 || i > array.length)
+			throw new IndexOutOfBoundsException("Index " + i + " out of bounds for length " + array.length);
+		if (ts.length == 0)
+			return array;
+		T[] a = newArray(array, array.length + ts.length);
+		System.arraycopy(array, 0, a, 0, i);
+		System.arraycopy(ts, 0, a, i, ts.length);
+		System.arraycopy(array, i, a, i + ts.length, array.length - i);
+		return a;
 	}
 
 	public ArrayOperator<T> remove(T t) {
@@ -225,21 +259,7 @@ public class ArrayOperator<T> {
 	}
 	
 	public static <T> T[] removeAll(T[] array, T t) {
-		boolean[] contained = new boolean[array.length];
-		int k = 0;
-		for(int i = 0; i < array.length; i++) {
-			if(Objects.equals(array[i], t)) {
-				contained[i] = true;
-				k++;
-			}
-		}
-		if(k == array.length)
-			return array;
-		@SuppressWarnings("unchecked")
-		T[] narr = (T[]) Array.newInstance(array.getClass().componentType(), k);
-		for(int i = array.length-1; k > 0; i--)
-			narr[i] = array[--k];
-		return narr;
+		return removeIf(array, x -> Objects.equals(x, t));
 	}
 
 	public ArrayOperator<T> removeAt(int i) {
@@ -262,17 +282,69 @@ public class ArrayOperator<T> {
 			throw new IndexOutOfBoundsException("Cannot remove less than zero elements");
 		if (count == 0)
 			return array;
-		T[] a = Arrays.copyOf(array, array.length - count);
-		for(int j = 0; j <= count; j++)
-			a[i+j] = array[i+count+j];
+		if (i < 0 || i + count > array.length)
+			throw new IndexOutOfBoundsException("Range [" + i + "," + (i+count) + ") out of bounds for length " + array.length);
+		T[] a = newArray(array, array.length - count);
+		System.arraycopy(array, 0, a, 0, i);
+		System.arraycopy(array, i + count, a, i, array.length - i - count);
 		return a;
 	}
 	
+	/**
+	 * Returns an {@link ArrayEditor} that can be used to apply multiple
+	 * insertions/removals to {@code array} while creating a single new array.
+	 */
+	public static <T> ArrayEditor<T> edit(T[] array) {
+		return new ArrayEditor<>(array);
+	}
+	
 	public ArrayOperator<T> removeIf(Predicate<T> filter) {
 		array.removeIf(filter);
 		return this;
 	}
 	
+	/**
+	 * Parallel version of {@link #removeIf(Object[], Predicate)}, the order of
+	 * the kept elements is preserved.
+	 */
+	public static <T> T[] parallelRemoveIf(T[] array, Predicate<T> filter) {
+		int chunkSize = ParallelTasks.chunkSize(array.length, ParallelTasks.DEFAULT_THRESHOLD);
+		int chunkCount = ParallelTasks.chunkCount(array.length, chunkSize);
+		if(chunkCount <= 1)
+			return removeIf(array, filter);
+		// first pass: test every element and count the kept ones per chunk
+		boolean[] kept = new boolean[array.length];
+		int[] offsets = new int[chunkCount+1];
+		ParallelTasks.forRange(0, chunkCount, 1, (from, to) -> {
+			for(int c = from; c < to; c++) {
+				int end = Math.min(array.length, (c+1)*chunkSize);
+				int k = 0;
+				for(int i = c*chunkSize; i < end; i++) {
+					if(kept[i] = !filter.test(array[i]))
+						k++;
+				}
+				offsets[c+1] = k;
+			}
+		});
+		for(int c = 0; c < chunkCount; c++)
+			offsets[c+1] += offsets[c];
+		if(offsets[chunkCount] == array.length)
+			return array;
+		// second pass: each chunk writes its elements at its prefix-sum offset
+		T[] narr = newArray(array, offsets[chunkCount]);
+		ParallelTasks.forRange(0, chunkCount, 1, (from, to) -> {
+			for(int c = from; c < to; c++) {
+				int end = Math.min(array.length, (c+1)*chunkSize);
+				int w = offsets[c];
+				for(int i = c*chunkSize; i < end; i++) {
+					if(kept[i])
+						narr[w++] = array[i];
+				}
+			}
+		});
+		return narr;
+	}
+	
 	public static <T> T[] removeIf(T[] array, Predicate<T> filter) {
 		boolean[] contained = new boolean[array.length];
 		int k = 0;
@@ -303,6 +375,11 @@ public class ArrayOperator<T> {
 		return removeIf(array, filter.negate());
 	}
 	
+	/** Parallel version of {@link #filter(Object[], Predicate)} */
+	public static <T> T[] parallelFilter(T[] array, Predicate<T> filter) {
+		return parallelRemoveIf(array, filter.negate());
+	}
+	
 	@SuppressWarnings("unchecked")
 	public static <T> T[] filter(Object[] array, Class<T> clazz) {
 		int count = 0;
@@ -374,6 +451,29 @@ public class ArrayOperator<T> {
 		return n;
 	}
 	
+	/** Parallel version of {@link #map(Function)} */
+	@SuppressWarnings("unchecked")
+	public <R> ArrayOperator<R> parallelMap(Function<T, R> f) {
+		Object[] n = parallelMap(array.toArray(), new Object[array.size()], (Function<Object, Object>) f);
+		return new ArrayOperator<>(new ArrayList<>((List<R>) Arrays.asList(n)));
+	}
+	
+	/** Parallel version of {@link #map(Object[], IntFunction, Function)} */
+	public static <T, R> R[] parallelMap(T[] array, IntFunction<R[]> generator, Function<T, R> f) {
+		return parallelMap(array, generator.apply(array.length), f);
+	}
+	
+	/** Parallel version of {@link #map(Object[], Object[], Function)} */
+	public static <T, R> R[] parallelMap(T[] from, R[] to, Function<T, R> f) {
+		if(from.length != to.length)
+			throw new IndexOutOfBoundsException("From and To arrays are not of the same size");
+		ParallelTasks.forRange(0, from.length, ParallelTasks.DEFAULT_THRESHOLD, (start, end) -> {
+			for(int i = start; i < end; i++)
+				to[i] = f.apply(from[i]);
+		});
+		return to;
+	}
+	
 	public static <T, R> R[] map(T[] from, R[] to, Function<T, R> f) {
 		if(from.length != to.length)
 			throw new IndexOutOfBoundsException("From and To arrays are not of the same size");
@@ -456,6 +556,16 @@ public class ArrayOperator<T> {
 		return r;
 	}
 	
+	/**
+	 * Parallel version of {@link #concat(BiFunction, Object)}, see
+	 * {@link #parallelAccumulate(Object[], BiFunction, BinaryOperator, Object)}
+	 * for the requirements on the given functions.
+	 */
+	@SuppressWarnings("unchecked")
+	public <R> R parallelConcat(BiFunction<R, T, R> generator, BinaryOperator<R> combiner, R identity) {
+		return parallelAccumulate((T[]) array.toArray(), generator, combiner, identity);
+	}
+	
 	public boolean contains(T t) {
 		for(T tt : array)
 			if(Objects.equals(t, tt))
@@ -479,45 +589,27 @@ public class ArrayOperator<T> {
 	}
 
 	public static int indexOf(int[] array, int x) {
-		for(int i = 0; i < array.length; i++)
-			if(array[i] == x)
-				return i;
-		return -1;
+		return PrimitiveSearch.indexOf(array, x, 0, array.length);
 	}
 
 	public static int indexOf(float[] array, float x) {
-		for(int i = 0; i < array.length; i++)
-			if(array[i] == x)
-				return i;
-		return -1;
+		return PrimitiveSearch.indexOf(array, x, 0, array.length);
 	}
 
 	public static int indexOf(double[] array, double x) {
-		for(int i = 0; i < array.length; i++)
-			if(array[i] == x)
-				return i;
-		return -1;
+		return PrimitiveSearch.indexOf(array, x, 0, array.length);
 	}
 
 	public static int indexOf(char[] array, char x) {
-		for(int i = 0; i < array.length; i++)
-			if(array[i] == x)
-				return i;
-		return -1;
+		return PrimitiveSearch.indexOf(array, x, 0, array.length);
 	}
 
 	public static int indexOf(short[] array, short x) {
-		for(int i = 0; i < array.length; i++)
-			if(array[i] == x)
-				return i;
-		return -1;
+		return PrimitiveSearch.indexOf(array, x, 0, array.length);
 	}
 
 	public static int indexOf(long[] array, long x) {
-		for(int i = 0; i < array.length; i++)
-			if(array[i] == x)
-				return i;
-		return -1;
+		return PrimitiveSearch.indexOf(array, x, 0, array.length);
 	}
 	
 	public static <T> boolean contains(T[] array, T t) {
@@ -547,6 +639,84 @@ public class ArrayOperator<T> {
 	public static boolean contains(double[] array, double x) {
 		return indexOf(array, x) != -1;
 	}
+	
+	public static int lastIndexOf(int[] array, int x) {
+		return PrimitiveSearch.lastIndexOf(array, x, 0, array.length);
+	}
+	
+	public static int lastIndexOf(float[] array, float x) {
+		return PrimitiveSearch.lastIndexOf(array, x, 0, array.length);
+	}
+	
+	public static int lastIndexOf(double[] array, double x) {
+		return PrimitiveSearch.lastIndexOf(array, x, 0, array.length);
+	}
+	
+	public static int lastIndexOf(char[] array, char x) {
+		return PrimitiveSearch.lastIndexOf(array, x, 0, array.length);
+	}
+	
+	public static int lastIndexOf(short[] array, short x) {
+		return PrimitiveSearch.lastIndexOf(array, x, 0, array.length);
+	}
+	
+	public static int lastIndexOf(long[] array, long x) {
+		return PrimitiveSearch.lastIndexOf(array, x, 0, array.length);
+	}
+	
+	public static int count(int[] array, int x) {
+		return PrimitiveSearch.count(array, x, 0, array.length);
+	}
+	
+	public static int count(float[] array, float x) {
+		return PrimitiveSearch.count(array, x, 0, array.length);
+	}
+	
+	public static int count(double[] array, double x) {
+		return PrimitiveSearch.count(array, x, 0, array.length);
+	}
+	
+	public static int count(char[] array, char x) {
+		return PrimitiveSearch.count(array, x, 0, array.length);
+	}
+	
+	public static int count(short[] array, short x) {
+		return PrimitiveSearch.count(array, x, 0, array.length);
+	}
+	
+	public static int count(long[] array, long x) {
+		return PrimitiveSearch.count(array, x, 0, array.length);
+	}
+	
+	/**
+	 * Returns the index of the first element of {@code array} that is equal to
+	 * any of the {@code needles}, or -1 if there is none.
+	 */
+	public static int indexOfAny(int[] array, int... needles) {
+		return PrimitiveSearch.indexOfAny(array, needles, 0, array.length);
+	}
+	
+	/** see {@link #indexOfAny(int[], int...)} */
+	public static int indexOfAny(long[] array, long... needles) {
+		return PrimitiveSearch.indexOfAny(array, needles, 0, array.length);
+	}
+	
+	/** see {@link #indexOfAny(int[], int...)} */
+	public static int indexOfAny(char[] array, char... needles) {
+		return PrimitiveSearch.indexOfAny(array, needles, 0, array.length);
+	}
+	
+	public static boolean containsAny(int[] array, int... needles) {
+		return indexOfAny(array, needles) != -1;
+	}
+	
+	public static boolean containsAny(long[] array, long... needles) {
+		return indexOfAny(array, needles) != -1;
+	}
+	
+	public static boolean containsAny(char[] array, char... needles) {
+		return indexOfAny(array, needles) != -1;
+	}
 
 	public static <T, R> R accumulate(T[] array, BiFunction<R, T, R> accumulator, R seed) {
 		for(T t : array)
@@ -558,4 +728,33 @@ public class ArrayOperator<T> {
 		return accumulate(array, accumulator, null);
 	}
 	
+	/**
+	 * Parallel version of {@link #accumulate(Object[], BiFunction, Object)}.
+	 * <p>
+	 * The array is split in ranges that are accumulated independently starting
+	 * from {@code identity}, the partial results are then merged using
+	 * {@code combiner}. {@code identity} must be an identity value for the
+	 * combiner and the combiner must be associative, ranges are always combined
+	 * in order so the combiner does not need to be commutative.
+	 * 
+	 * @param array       the array to accumulate
+	 * @param accumulator the function folding an element into a partial result
+	 * @param combiner    the function merging two partial results
+	 * @param identity    the initial value of every partial result
+	 * @return the accumulated value
+	 */
+	public static <T, R> R parallelAccumulate(T[] array, BiFunction<R, T, R> accumulator, BinaryOperator<R> combiner, R identity) {
+		return ParallelTasks.reduceRange(0, array.length, ParallelTasks.DEFAULT_THRESHOLD, (from, to) -> {
+			R r = identity;
+			for(int i = from; i < to; i++)
+				r = accumulator.apply(r, array[i]);
+			return r;
+		}, combiner);
+	}
+	
+	@SuppressWarnings("unchecked")
+	private static <T> T[] newArray(T[] model, int length) {
+		return (T[]) Array.newInstance(model.getClass().componentType(), length);
+	}
+	
 }
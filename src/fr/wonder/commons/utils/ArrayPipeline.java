@@ -0,0 +1,171 @@
+package fr.wonder.commons.utils;
+
+import java.lang.reflect.Array;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * A lazy version of {@link ArrayOperator}, operations are only recorded and
+ * are all applied at once, in a single pass over the source elements, when
+ * {@link #finish(IntFunction)} is called.
+ * <p>
+ * No intermediate list is created, if the pipeline only contains
+ * {@link #map(Function) maps} the elements are written directly into the
+ * resulting array, otherwise they are written into a single buffer that is
+ * then copied into a correctly sized array.
+ * <p>
+ * Example use case: <blockquote>
+ *
+ * <pre>
+ *   String[] names = ArrayOperator.lazy(nodes)
+ *     .map(Node::getName)
+ *     .removeIf(String::isEmpty)
+ *     .distinct()
+ *     .finish(String[]::new);
+ * </pre>
+ *
+ * </blockquote>
+ *
+ * Because operations are fused, the functions given to a pipeline are called
+ * element by element (the first element goes through all operations before
+ * the second is processed) and not operation by operation as they would be
+ * with an {@link ArrayOperator}.
+ * <p>
+ * A pipeline can be finished multiple times, the source is read again every
+ * time so changes to the source array are visible.
+ */
+public class ArrayPipeline<T> {
+
+	/** Marker value returned by a stage to drop the current element */
+	private static final Object SKIP = new Object();
+
+	private final List<?> source;
+	private final List<Supplier<Stage>> stages = new ArrayList<>();
+	/** true if no stage can drop an element, the result size is known beforehand */
+	private boolean sizePreserving = true;
+
+	/** see {@link ArrayPipeline} */
+	public ArrayPipeline(T[] source) {
+		this(Arrays.asList(source));
+	}
+
+	/** see {@link ArrayPipeline} */
+	public ArrayPipeline(List<? extends T> source) {
+		this.source = source;
+	}
+
+	/** Creates a pipeline continuing {@code parent}, stages added to one of them are not seen by the other */
+	private ArrayPipeline(ArrayPipeline<?> parent) {
+		this.source = parent.source;
+		this.stages.addAll(parent.stages);
+		this.sizePreserving = parent.sizePreserving;
+	}
+
+	private interface Stage {
+		/** Returns the transformed element or {@link ArrayPipeline#SKIP} */
+		Object apply(Object o);
+	}
+
+	/**
+	 * Returns a new pipeline that maps the elements of this one with {@code f},
+	 * this pipeline is left unchanged.
+	 */
+	@SuppressWarnings("unchecked")
+	public <R> ArrayPipeline<R> map(Function<T, R> f) {
+		Function<Object, Object> of = (Function<Object, Object>) f;
+		ArrayPipeline<R> mapped = new ArrayPipeline<>(this);
+		mapped.stages.add(() -> of::apply);
+		return mapped;
+	}
+
+	@SuppressWarnings("unchecked")
+	public ArrayPipeline<T> removeIf(Predicate<T> filter) {
+		Predicate<Object> of = (Predicate<Object>) filter;
+		stages.add(() -> o -> of.test(o) ? SKIP : o);
+		sizePreserving = false;
+		return this;
+	}
+
+	public ArrayPipeline<T> retainIf(Predicate<T> filter) {
+		return removeIf(filter.negate());
+	}
+
+	public ArrayPipeline<T> removeNull() {
+		return removeIf(Predicates::isNull);
+	}
+
+	/**
+	 * Removes duplicate elements, keeping the <b>first</b> occurrence of each
+	 * element (unlike {@link ArrayOperator#removeDuplicates()} which keeps the
+	 * last one). Elements are compared using their {@code equals} and
+	 * {@code hashCode} methods.
+	 */
+	public ArrayPipeline<T> distinct() {
+		stages.add(() -> {
+			Set<Object> seen = new HashSet<>();
+			return o -> seen.add(o) ? o : SKIP;
+		});
+		sizePreserving = false;
+		return this;
+	}
+
+	/**
+	 * Applies all operations and returns the resulting array.
+	 *
+	 * @param generator the function used to create the resulting array, called
+	 *                  once with the exact number of resulting elements
+	 * @return the resulting array
+	 */
+	public T[] finish(IntFunction<T[]> generator) {
+		Stage[] pipeline = new Stage[stages.size()];
+		for(int i = 0; i < pipeline.length; i++)
+			pipeline[i] = stages.get(i).get();
+
+		if(sizePreserving) {
+			T[] result = generator.apply(source.size());
+			int i = 0;
+			for(Object o : source)
+				result[i++] = process(pipeline, o);
+			return result;
+		}
+
+		Object[] buffer = new Object[source.size()];
+		int count = 0;
+		for(Object o : source) {
+			Object r = process(pipeline, o);
+			if(r != SKIP)
+				buffer[count++] = r;
+		}
+		T[] result = generator.apply(count);
+		System.arraycopy(buffer, 0, result, 0, count);
+		return result;
+	}
+
+	@SuppressWarnings("unchecked")
+	public T[] finish(Class<T> c) {
+		return finish(l -> (T[]) Array.newInstance(c, l));
+	}
+
+	@SuppressWarnings("unchecked")
+	public Object[] finish() {
+		return finish(l -> (T[]) new Object[l]);
+	}
+
+	@SuppressWarnings("unchecked")
+	private static <T> T process(Stage[] pipeline, Object o) {
+		for(Stage s : pipeline) {
+			o = s.apply(o);
+			if(o == SKIP)
+				break;
+		}
+		return (T) o;
+	}
+
+}
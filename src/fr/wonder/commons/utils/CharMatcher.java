@@ -0,0 +1,206 @@
+package fr.wonder.commons.utils;
+
+import java.util.Arrays;
+
+/**
+ * An immutable set of characters, used to classify characters and to search
+ * or clean character sequences.
+ * <p>
+ * Matchers are backed by precomputed bitsets, ASCII characters are tested
+ * against two longs and other characters of the basic multilingual plane
+ * against a 8Kb bitset that is only allocated if the matcher contains
+ * non-ASCII characters. Common matchers can be found in
+ * {@link StringUtils.Charsets}.
+ * <p>
+ * Example use case: <blockquote>
+ *
+ * <pre>
+ *   CharMatcher separators = CharMatcher.anyOf(",;").or(CharMatcher.inRange('\0', ' '));
+ *   int end = separators.indexOfAny(line, start);
+ *   String normalized = separators.collapse(line, ' ');
+ * </pre>
+ *
+ * </blockquote>
+ */
+public final class CharMatcher {
+
+	/** Matches no character */
+	public static final CharMatcher NONE = new CharMatcher(0, 0, null, false);
+	/** Matches all characters */
+	public static final CharMatcher ALL = new CharMatcher(-1, -1, null, true);
+
+	private static final int BMP_WORDS = (Character.MAX_VALUE + 1) / Long.SIZE;
+
+	/** characters 0-63 */
+	private final long low;
+	/** characters 64-127 */
+	private final long high;
+	/** all characters, null if non-ASCII characters are all matched or all unmatched */
+	private final long[] bmp;
+	/** whether non-ASCII characters are matched if bmp is null */
+	private final boolean nonAscii;
+
+	private CharMatcher(long low, long high, long[] bmp, boolean nonAscii) {
+		this.low = low;
+		this.high = high;
+		this.bmp = bmp;
+		this.nonAscii = nonAscii;
+	}
+
+	/** Returns a matcher matching the given characters */
+	public static CharMatcher anyOf(char... chars) {
+		long low = 0, high = 0;
+		long[] bmp = null;
+		for(char c : chars) {
+			if(c < 64) {
+				low |= 1L << c;
+			} else if(c < 128) {
+				high |= 1L << c;
+			} else {
+				if(bmp == null)
+					bmp = new long[BMP_WORDS];
+				bmp[c >>> 6] |= 1L << c;
+			}
+		}
+		return new CharMatcher(low, high, bmp, false);
+	}
+
+	/** Returns a matcher matching the characters of {@code chars} */
+	public static CharMatcher anyOf(CharSequence chars) {
+		char[] array = new char[chars.length()];
+		for(int i = 0; i < array.length; i++)
+			array[i] = chars.charAt(i);
+		return anyOf(array);
+	}
+
+	/** Returns a matcher matching the characters from {@code from} to {@code to} included */
+	public static CharMatcher inRange(char from, char to) {
+		if(from > to)
+			throw new IllegalArgumentException("Invalid range " + (int) from + "-" + (int) to);
+		long low = 0, high = 0;
+		long[] bmp = null;
+		for(int c = from; c <= to && c < 128; c++) {
+			if(c < 64)
+				low |= 1L << c;
+			else
+				high |= 1L << c;
+		}
+		if(to >= 128) {
+			bmp = new long[BMP_WORDS];
+			for(int c = Math.max(from, 128); c <= to; c++)
+				bmp[c >>> 6] |= 1L << c;
+		}
+		return new CharMatcher(low, high, bmp, false);
+	}
+
+	/** Returns a matcher matching the characters matched by this matcher or by {@code other} */
+	public CharMatcher or(CharMatcher other) {
+		if(bmp == null && other.bmp == null)
+			return new CharMatcher(low | other.low, high | other.high, null, nonAscii || other.nonAscii);
+		long[] a = expandedBmp(), b = other.expandedBmp();
+		long[] bmp = new long[BMP_WORDS];
+		for(int i = 0; i < BMP_WORDS; i++)
+			bmp[i] = a[i] | b[i];
+		return new CharMatcher(low | other.low, high | other.high, bmp, false);
+	}
+
+	/** Returns a matcher matching the characters not matched by this matcher */
+	public CharMatcher negate() {
+		long[] negated = null;
+		if(bmp != null) {
+			negated = new long[BMP_WORDS];
+			for(int i = 0; i < BMP_WORDS; i++)
+				negated[i] = ~bmp[i];
+		}
+		return new CharMatcher(~low, ~high, negated, !nonAscii);
+	}
+
+	private long[] expandedBmp() {
+		if(bmp != null)
+			return bmp;
+		long[] expanded = new long[BMP_WORDS];
+		if(nonAscii)
+			Arrays.fill(expanded, -1);
+		return expanded;
+	}
+
+	public boolean matches(char c) {
+		if(c < 64)
+			return (low & 1L << c) != 0;
+		if(c < 128)
+			return (high & 1L << c) != 0;
+		if(bmp == null)
+			return nonAscii;
+		return (bmp[c >>> 6] & 1L << c) != 0;
+	}
+
+	/** Returns true if at least one character of {@code s} matches */
+	public boolean matchesAnyOf(CharSequence s) {
+		return indexOfAny(s) != -1;
+	}
+
+	/** Returns true if all characters of {@code s} match, or if {@code s} is empty */
+	public boolean matchesAllOf(CharSequence s) {
+		for(int i = 0; i < s.length(); i++)
+			if(!matches(s.charAt(i)))
+				return false;
+		return true;
+	}
+
+	/** Returns the index of the first matching character of {@code s}, or -1 */
+	public int indexOfAny(CharSequence s) {
+		return indexOfAny(s, 0);
+	}
+
+	/** Returns the index of the first matching character of {@code s} at or after {@code from}, or -1 */
+	public int indexOfAny(CharSequence s, int from) {
+		int length = s.length();
+		for(int i = Math.max(from, 0); i < length; i++)
+			if(matches(s.charAt(i)))
+				return i;
+		return -1;
+	}
+
+	/** Returns the number of matching characters in {@code s} */
+	public int countIn(CharSequence s) {
+		int count = 0;
+		int length = s.length();
+		for(int i = 0; i < length; i++)
+			if(matches(s.charAt(i)))
+				count++;
+		return count;
+	}
+
+	/** Returns {@code s} without its leading and trailing matching characters */
+	public String trim(CharSequence s) {
+		int start = 0, end = s.length();
+		while(start < end && matches(s.charAt(start)))
+			start++;
+		while(end > start && matches(s.charAt(end-1)))
+			end--;
+		return s.subSequence(start, end).toString();
+	}
+
+	/**
+	 * Returns a copy of {@code s} in which each run of consecutive matching
+	 * characters is replaced by a single {@code replacement}.
+	 * <p>
+	 * For example {@code StringUtils.Charsets.MATCHER_WHITESPACES.collapse("a \t b", ' ')}
+	 * returns {@code "a b"}.
+	 */
+	public String collapse(CharSequence s, char replacement) {
+		int length = s.length();
+		StringBuilder sb = new StringBuilder(length);
+		int start = 0;
+		for(int i = 0; i < length; i++) {
+			if(!matches(s.charAt(i)))
+				continue;
+			sb.append(s, start, i).append(replacement);
+			while(i+1 < length && matches(s.charAt(i+1)))
+				i++;
+			start = i+1;
+		}
+		return sb.append(s, start, length).toString();
+	}
+
+}
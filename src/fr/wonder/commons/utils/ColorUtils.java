@@ -1,5 +1,18 @@
 package fr.wonder.commons.utils;
 
+import java.io.IOException;
+
+import fr.wonder.commons.exceptions.UnreachableException;
+
+/**
+ * ANSI color codes and functions to remove ANSI escape sequences from texts.
+ * <p>
+ * Stripping functions handle full CSI sequences (colors, cursor moves...),
+ * OSC strings (window titles, hyperlinks...) and other escape sequences in a
+ * single pass over the text. A sequence left unterminated at the end of the
+ * text is removed. To strip sequences from a stream see
+ * {@link AnsiStripOutputStream}.
+ */
 public class ColorUtils {
 
 	public static final class ANSI {
@@ -14,19 +27,79 @@ public class ColorUtils {
 				RESET  = "\u001b[0m";
 	}
 	
+	/** Returns {@code text} without its ANSI escape sequences */
 	public static String stripAnsi(String text) {
-		return stripAnsi(new StringBuilder(text)).toString();
+		if(text.indexOf(ANSI.CODEPOINT) == -1)
+			return text;
+		StringBuilder sb = new StringBuilder(text.length());
+		try {
+			stripAnsi(text, sb);
+		} catch (IOException e) {
+			throw new UnreachableException(e);
+		}
+		return sb.toString();
 	}
 	
+	/**
+	 * Removes the ANSI escape sequences of {@code text} in place.
+	 *
+	 * @return {@code text}
+	 */
 	public static StringBuilder stripAnsi(StringBuilder text) {
-		int pos;
-		while((pos = text.lastIndexOf(ANSI.MARKER)) != -1) {
-			int m = text.indexOf("m", pos);
-			if(m == -1)
-				throw new IllegalArgumentException("Malformed ANSI sequence");
-			text.delete(pos, m+1);
+		AnsiParser parser = new AnsiParser();
+		int length = text.length();
+		int w = 0;
+		for(int i = 0; i < length; i++) {
+			char c = text.charAt(i);
+			if(parser.accept(c)) {
+				if(w != i)
+					text.setCharAt(w, c);
+				w++;
+			}
 		}
+		text.setLength(w);
 		return text;
 	}
 	
+	/**
+	 * Appends {@code text} without its ANSI escape sequences to {@code out}.
+	 *
+	 * @return {@code out}
+	 * @throws IOException if {@code out} throws
+	 */
+	public static <A extends Appendable> A stripAnsi(CharSequence text, A out) throws IOException {
+		AnsiParser parser = new AnsiParser();
+		int length = text.length();
+		int start = 0;
+		for(int i = 0; i < length; i++) {
+			if(!parser.accept(text.charAt(i))) {
+				if(start != i)
+					out.append(text, start, i);
+				start = i + 1;
+			}
+		}
+		if(start != length)
+			out.append(text, start, length);
+		return out;
+	}
+	
+	/**
+	 * Removes the ANSI escape sequences of the UTF-8 (or ASCII) encoded text
+	 * {@code bytes[offset..offset+length)} in place.
+	 *
+	 * @return the length of the stripped text, that starts at {@code offset}
+	 */
+	public static int stripAnsi(byte[] bytes, int offset, int length) {
+		if(offset < 0 || length < 0 || offset + length > bytes.length)
+			throw new IndexOutOfBoundsException("Range [" + offset + "," + (offset + length) + ") out of bounds for length " + bytes.length);
+		AnsiParser parser = new AnsiParser();
+		int w = offset;
+		for(int i = offset; i < offset + length; i++) {
+			byte b = bytes[i];
+			if(parser.accept(b & 0xff))
+				bytes[w++] = b;
+		}
+		return w - offset;
+	}
+
 }
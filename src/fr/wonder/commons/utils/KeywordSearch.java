@@ -0,0 +1,438 @@
+package fr.wonder.commons.utils;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Searches a set of keywords in texts, all occurrences of all keywords are
+ * found in a single pass over the text.
+ * <p>
+ * The keywords are compiled once into an Aho-Corasick automaton stored as a
+ * complete transition table over a compressed alphabet (only the characters
+ * used by the keywords are distinguished), each character of the text costs a
+ * single table lookup whatever the number of keywords. Sets of a few keywords
+ * are instead searched by testing their last characters against a
+ * {@link CharMatcher} and comparing the keywords only where it matches.
+ * <p>
+ * Texts can be {@link CharSequence}s or UTF-8 encoded {@link ByteBuffer}s
+ * (memory mapped files for example), the byte automaton is only built the
+ * first time a buffer is searched. Searches are thread safe.
+ * <p>
+ * Matches are reported in increasing order of their end index, matches ending
+ * at the same index from the longest to the shortest. Overlapping matches are
+ * all reported.
+ * <p>
+ * Example use case: <blockquote>
+ *
+ * <pre>
+ *   KeywordSearch search = new KeywordSearch("TODO", "FIXME", "XXX");
+ *   for(Match m : search.findAll(source))
+ *     System.out.println(search.getKeyword(m.keyword()) + " at " + m.start());
+ * </pre>
+ *
+ * </blockquote>
+ */
+public class KeywordSearch {
+
+	/** Keyword sets up to this size are searched without automaton */
+	private static final int SMALL_SET_SIZE = 4;
+
+	/** Receives the matches of a search */
+	public interface MatchListener {
+
+		/**
+		 * Called for each match.
+		 *
+		 * @param keyword the index of the matched keyword
+		 * @param start the index of the first char (or byte) of the match
+		 * @param end the index following the last char (or byte) of the match
+		 */
+		void onMatch(int keyword, int start, int end);
+
+	}
+
+	/** An occurrence of a keyword */
+	public static class Match {
+
+		private final int keyword, start, end;
+
+		public Match(int keyword, int start, int end) {
+			this.keyword = keyword;
+			this.start = start;
+			this.end = end;
+		}
+
+		/** Returns the index of the matched keyword */
+		public int keyword() {
+			return keyword;
+		}
+
+		public int start() {
+			return start;
+		}
+
+		public int end() {
+			return end;
+		}
+
+		@Override
+		public String toString() {
+			return "Match[keyword=" + keyword + ", start=" + start + ", end=" + end + "]";
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if(!(o instanceof Match))
+				return false;
+			Match m = (Match) o;
+			return keyword == m.keyword && start == m.start && end == m.end;
+		}
+
+		@Override
+		public int hashCode() {
+			return (keyword * 31 + start) * 31 + end;
+		}
+	}
+
+	private final String[] keywords;
+	/** indices of the keywords to test, by decreasing length, duplicates removed */
+	private final int[] byLength;
+
+	/* char search */
+	private final CharMatcher lastChars;
+	private final int[] asciiClasses = new int[128];
+	/** non-ASCII characters used by the keywords, sorted, their class is their index + otherBase */
+	private final char[] otherChars;
+	private final int otherBase;
+	private final Automaton charAutomaton;
+
+	/* byte search, built lazily */
+	private volatile byte[][] utf8Keywords;
+	private volatile Automaton byteAutomaton;
+
+	/**
+	 * Compiles the given keywords, duplicate keywords are only reported once
+	 * with the index of their first occurrence.
+	 *
+	 * @throws IllegalArgumentException if a keyword is empty
+	 */
+	public KeywordSearch(String... keywords) {
+		this.keywords = keywords.clone();
+		for(String k : this.keywords) {
+			if(k.isEmpty())
+				throw new IllegalArgumentException("Empty keyword");
+		}
+		this.byLength = distinctByLength(this.keywords);
+		StringBuilder last = new StringBuilder();
+		for(int k : byLength)
+			last.append(keywords[k].charAt(keywords[k].length()-1));
+		this.lastChars = CharMatcher.anyOf(last);
+		if(byLength.length <= SMALL_SET_SIZE) {
+			this.otherChars = null;
+			this.otherBase = 0;
+			this.charAutomaton = null;
+			return;
+		}
+		// compress the alphabet, class 0 is for characters that are not in any keyword
+		StringBuilder others = new StringBuilder();
+		int asciiCount = 0;
+		for(String k : this.keywords) {
+			for(int i = 0; i < k.length(); i++) {
+				char c = k.charAt(i);
+				if(c < 128) {
+					if(asciiClasses[c] == 0)
+						asciiClasses[c] = ++asciiCount;
+				} else {
+					others.append(c);
+				}
+			}
+		}
+		this.otherChars = others.chars().sorted().distinct()
+				.collect(StringBuilder::new, StringBuilder::appendCodePoint, StringBuilder::append)
+				.toString().toCharArray();
+		this.otherBase = asciiCount + 1;
+		int[][] sequences = new int[this.keywords.length][];
+		for(int k = 0; k < sequences.length; k++) {
+			String s = this.keywords[k];
+			sequences[k] = new int[s.length()];
+			for(int i = 0; i < s.length(); i++)
+				sequences[k][i] = charClass(s.charAt(i));
+		}
+		this.charAutomaton = new Automaton(sequences, byLength, otherBase + otherChars.length);
+	}
+
+	/** see {@link #KeywordSearch(String...)} */
+	public KeywordSearch(Collection<String> keywords) {
+		this(keywords.toArray(String[]::new));
+	}
+
+	private static int[] distinctByLength(String[] keywords) {
+		List<Integer> distinct = new ArrayList<>();
+		Set<String> seen = new HashSet<>();
+		for(int k = 0; k < keywords.length; k++) {
+			if(seen.add(keywords[k]))
+				distinct.add(k);
+		}
+		distinct.sort(Comparator.comparingInt((Integer k) -> keywords[k].length()).reversed());
+		return distinct.stream().mapToInt(Integer::intValue).toArray();
+	}
+
+	private int charClass(char c) {
+		if(c < 128)
+			return asciiClasses[c];
+		int i = Arrays.binarySearch(otherChars, c);
+		return i < 0 ? 0 : otherBase + i;
+	}
+
+	public int keywordCount() {
+		return keywords.length;
+	}
+
+	public String getKeyword(int index) {
+		return keywords[index];
+	}
+
+	/** Reports all matches found in {@code text} to {@code listener} */
+	public void search(CharSequence text, MatchListener listener) {
+		scan(text, listener, false);
+	}
+
+	/** Returns all matches found in {@code text} */
+	public List<Match> findAll(CharSequence text) {
+		List<Match> matches = new ArrayList<>();
+		scan(text, (k, s, e) -> matches.add(new Match(k, s, e)), false);
+		return matches;
+	}
+
+	/** Returns true if {@code text} contains at least one keyword */
+	public boolean containsAny(CharSequence text) {
+		return scan(text, null, true);
+	}
+
+	private boolean scan(CharSequence text, MatchListener listener, boolean stopAtFirst) {
+		int length = text.length();
+		if(charAutomaton == null) {
+			for(int i = 0; i < length; i++) {
+				if(!lastChars.matches(text.charAt(i)))
+					continue;
+				for(int k : byLength) {
+					String keyword = keywords[k];
+					int start = i + 1 - keyword.length();
+					if(start >= 0 && regionMatches(text, start, keyword)) {
+						if(stopAtFirst)
+							return true;
+						listener.onMatch(k, start, i + 1);
+					}
+				}
+			}
+			return false;
+		}
+		Automaton a = charAutomaton;
+		int[] delta = a.delta;
+		int width = a.width;
+		int state = 0;
+		for(int i = 0; i < length; i++) {
+			char c = text.charAt(i);
+			state = delta[state * width + (c < 128 ? asciiClasses[c] : charClass(c))];
+			if(a.outputs[state] != -1) {
+				if(stopAtFirst)
+					return true;
+				a.report(state, i + 1, listener);
+			}
+		}
+		return false;
+	}
+
+	private static boolean regionMatches(CharSequence text, int start, String keyword) {
+		for(int j = 0; j < keyword.length(); j++)
+			if(text.charAt(start + j) != keyword.charAt(j))
+				return false;
+		return true;
+	}
+
+	/**
+	 * Reports all matches found in the UTF-8 encoded bytes of {@code buffer}
+	 * between its position and its limit. Reported indices are absolute indices
+	 * in the buffer, the buffer position is not modified.
+	 */
+	public void search(ByteBuffer buffer, MatchListener listener) {
+		scan(buffer, listener, false);
+	}
+
+	/** see {@link #search(ByteBuffer, MatchListener)} */
+	public List<Match> findAll(ByteBuffer buffer) {
+		List<Match> matches = new ArrayList<>();
+		scan(buffer, (k, s, e) -> matches.add(new Match(k, s, e)), false);
+		return matches;
+	}
+
+	/** see {@link #search(ByteBuffer, MatchListener)} */
+	public boolean containsAny(ByteBuffer buffer) {
+		return scan(buffer, null, true);
+	}
+
+	private boolean scan(ByteBuffer buffer, MatchListener listener, boolean stopAtFirst) {
+		int from = buffer.position(), to = buffer.limit();
+		if(charAutomaton == null) {
+			byte[][] utf8 = utf8Keywords();
+			for(int i = from; i < to; i++) {
+				byte b = buffer.get(i);
+				for(int k : byLength) {
+					byte[] keyword = utf8[k];
+					int start = i + 1 - keyword.length;
+					if(keyword[keyword.length-1] == b && start >= from && regionMatches(buffer, start, keyword)) {
+						if(stopAtFirst)
+							return true;
+						listener.onMatch(k, start, i + 1);
+					}
+				}
+			}
+			return false;
+		}
+		Automaton a = byteAutomaton();
+		int[] delta = a.delta;
+		int width = a.width;
+		int state = 0;
+		for(int i = from; i < to; i++) {
+			state = delta[state * width + (buffer.get(i) & 0xff)];
+			if(a.outputs[state] != -1) {
+				if(stopAtFirst)
+					return true;
+				a.report(state, i + 1, listener);
+			}
+		}
+		return false;
+	}
+
+	private static boolean regionMatches(ByteBuffer buffer, int start, byte[] keyword) {
+		for(int j = 0; j < keyword.length; j++)
+			if(buffer.get(start + j) != keyword[j])
+				return false;
+		return true;
+	}
+
+	private byte[][] utf8Keywords() {
+		byte[][] utf8 = utf8Keywords;
+		if(utf8 == null) {
+			utf8 = new byte[keywords.length][];
+			for(int k = 0; k < utf8.length; k++)
+				utf8[k] = keywords[k].getBytes(StandardCharsets.UTF_8);
+			utf8Keywords = utf8;
+		}
+		return utf8;
+	}
+
+	private Automaton byteAutomaton() {
+		Automaton a = byteAutomaton;
+		if(a == null) {
+			// bytes are not compressed, 256 columns are small enough
+			byte[][] utf8 = utf8Keywords();
+			int[][] sequences = new int[utf8.length][];
+			for(int k = 0; k < utf8.length; k++) {
+				sequences[k] = new int[utf8[k].length];
+				for(int i = 0; i < utf8[k].length; i++)
+					sequences[k][i] = utf8[k][i] & 0xff;
+			}
+			byteAutomaton = a = new Automaton(sequences, byLength, 256);
+		}
+		return a;
+	}
+
+	/**
+	 * An Aho-Corasick automaton over symbols {@code [0,width)}, with a complete
+	 * transition table.
+	 */
+	private static class Automaton {
+
+		private final int width;
+		/** delta[state*width + symbol] is the next state */
+		private final int[] delta;
+		/** keyword ending at each state, or -1 */
+		private final int[] keywordAt;
+		/** the longest proper suffix state at which a keyword ends, or -1 */
+		private final int[] dictLinks;
+		/** the first state of the output chain of each state (itself or its dictionary link) */
+		private final int[] outputs;
+		/** length of each keyword in symbols */
+		private final int[] lengths;
+
+		Automaton(int[][] sequences, int[] keywords, int width) {
+			long maxStates = 1;
+			for(int[] s : sequences)
+				maxStates += s.length;
+			if(maxStates * width > Integer.MAX_VALUE - 8)
+				throw new IllegalArgumentException("Too many keywords");
+			this.width = width;
+			int[] delta = new int[(int) maxStates * width];
+			Arrays.fill(delta, -1);
+			int[] keywordAt = new int[(int) maxStates];
+			Arrays.fill(keywordAt, -1);
+			this.lengths = new int[sequences.length];
+			int states = 1;
+			// build the trie
+			for(int k : keywords) {
+				int state = 0;
+				for(int symbol : sequences[k]) {
+					int next = delta[state * width + symbol];
+					if(next == -1)
+						next = delta[state * width + symbol] = states++;
+					state = next;
+				}
+				keywordAt[state] = k;
+				lengths[k] = sequences[k].length;
+			}
+			// complete the transitions with the failure links, in breadth first order
+			int[] fail = new int[states];
+			int[] dictLinks = new int[states];
+			int[] queue = new int[states];
+			int head = 0, tail = 0;
+			dictLinks[0] = -1;
+			for(int symbol = 0; symbol < width; symbol++) {
+				int next = delta[symbol];
+				if(next == -1) {
+					delta[symbol] = 0;
+				} else {
+					fail[next] = 0;
+					dictLinks[next] = -1;
+					queue[tail++] = next;
+				}
+			}
+			while(head < tail) {
+				int state = queue[head++];
+				int row = state * width, failRow = fail[state] * width;
+				for(int symbol = 0; symbol < width; symbol++) {
+					int next = delta[row + symbol];
+					if(next == -1) {
+						delta[row + symbol] = delta[failRow + symbol];
+					} else {
+						int f = delta[failRow + symbol];
+						fail[next] = f;
+						dictLinks[next] = keywordAt[f] != -1 ? f : dictLinks[f];
+						queue[tail++] = next;
+					}
+				}
+			}
+			this.delta = Arrays.copyOf(delta, states * width);
+			this.keywordAt = Arrays.copyOf(keywordAt, states);
+			this.dictLinks = dictLinks;
+			this.outputs = new int[states];
+			for(int s = 0; s < states; s++)
+				outputs[s] = this.keywordAt[s] != -1 ? s : dictLinks[s];
+		}
+
+		void report(int state, int end, MatchListener listener) {
+			for(int o = outputs[state]; o != -1; o = dictLinks[o]) {
+				int k = keywordAt[o];
+				listener.onMatch(k, end - lengths[k], end);
+			}
+		}
+	}
+
+}
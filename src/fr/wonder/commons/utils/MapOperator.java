@@ -5,16 +5,173 @@ import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Function;
+import java.util.function.ToIntFunction;
+import java.util.function.ToLongFunction;
 
+import fr.wonder.commons.types.FrozenBiMap;
+import fr.wonder.commons.types.FrozenMap;
+import fr.wonder.commons.types.IntObjectMap;
+import fr.wonder.commons.types.LongObjectMap;
+import fr.wonder.commons.types.ObjectIntMap;
+
+/**
+ * Functions building maps from collections and arrays.
+ * <p>
+ * The {@code parallelMap} and {@code concurrentMap} methods split the work on
+ * the common fork/join pool when the collection is large enough, the functions
+ * given to them must be safe to call from multiple threads.
+ */
 public class MapOperator {
 	
+	/**
+	 * Decides which value is kept when two elements are mapped to the same key,
+	 * see {@link #keepFirst()}, {@link #keepLast()} and
+	 * {@link #failOnCollision()} for common strategies.
+	 */
+	@FunctionalInterface
+	public interface KeyCollision<K, V> {
+		
+		/**
+		 * Returns the value to associate with {@code key}.
+		 * 
+		 * @param key the key both values are mapped to
+		 * @param existing the value of the element that comes first
+		 * @param added the value of the element that comes last
+		 */
+		V resolve(K key, V existing, V added);
+		
+	}
+	
+	/** Keeps the value of the first element mapped to a key */
+	public static <K, V> KeyCollision<K, V> keepFirst() {
+		return (k, existing, added) -> existing;
+	}
+	
+	/** Keeps the value of the last element mapped to a key, as {@link Map#put(Object, Object)} does */
+	public static <K, V> KeyCollision<K, V> keepLast() {
+		return (k, existing, added) -> added;
+	}
+	
+	/** Throws an {@link IllegalStateException} naming the key when two elements are mapped to the same key */
+	public static <K, V> KeyCollision<K, V> failOnCollision() {
+		return (k, existing, added) -> {
+			throw new IllegalStateException("Duplicate key " + k + " (values " + existing + " and " + added + ")");
+		};
+	}
+	
+	/** Returns the initial capacity of a {@code HashMap} holding {@code size} entries without rehashing */
+	private static int hashCapacity(int size) {
+		return (int) (size / .75f) + 1;
+	}
+	
+	/**
+	 * Maps each element of {@code collection} to a key and a value, when
+	 * multiple elements are mapped to the same key the last value is kept.
+	 */
 	public static <T, K, V> Map<K, V> map(Collection<T> collection, Function<T, K> keyGen, Function<T, V> valGen) {
-		Map<K, V> map = new HashMap<>(collection.size());
+		Map<K, V> map = new HashMap<>(hashCapacity(collection.size()));
 		for(T v : collection)
 			map.put(keyGen.apply(v), valGen.apply(v));
 		return map;
 	}
+	
+	/**
+	 * Same as {@link #map(Collection, Function, Function)} but resolves
+	 * collisions with {@code collision}, which is called in the iteration order
+	 * of the collection.
+	 */
+	public static <T, K, V> Map<K, V> map(Collection<T> collection, Function<T, K> keyGen, Function<T, V> valGen,
+			KeyCollision<? super K, V> collision) {
+		Map<K, V> map = new HashMap<>(hashCapacity(collection.size()));
+		for(T v : collection)
+			putResolved(map, keyGen.apply(v), valGen.apply(v), collision);
+		return map;
+	}
+	
+	/**
+	 * Parallel version of {@link #map(Collection, Function, Function, KeyCollision)}.
+	 * <p>
+	 * The collection is split in chunks that are mapped by different threads,
+	 * the maps of consecutive chunks are then merged. {@code collision} always
+	 * receives the value coming from earlier elements first, but values are
+	 * grouped differently: where the sequential version resolves
+	 * {@code r(r(a, b), c)} this may resolve {@code r(a, r(b, c))}. The result
+	 * is thus the same as the sequential version only if {@code collision} is
+	 * associative, as are keeping the first or the last value, summing or
+	 * concatenating. {@code collision} may be called from any thread.
+	 */
+	@SuppressWarnings("unchecked")
+	public static <T, K, V> Map<K, V> parallelMap(Collection<T> collection, Function<T, K> keyGen, Function<T, V> valGen,
+			KeyCollision<? super K, V> collision) {
+		if(collection.size() <= ParallelTasks.DEFAULT_THRESHOLD || ParallelTasks.parallelism() <= 1)
+			return map(collection, keyGen, valGen, collision);
+		Object[] elements = collection.toArray();
+		int chunkSize = ParallelTasks.chunkSize(elements.length, ParallelTasks.DEFAULT_THRESHOLD);
+		return ParallelTasks.reduceRange(0, elements.length, chunkSize, (from, to) -> {
+			Map<K, V> map = new HashMap<>(hashCapacity(to - from));
+			for(int i = from; i < to; i++) {
+				T v = (T) elements[i];
+				putResolved(map, keyGen.apply(v), valGen.apply(v), collision);
+			}
+			return map;
+		}, (left, right) -> mergeOrdered(left, right, collision));
+	}
+	
+	/**
+	 * Maps each element of {@code collection} to a key and a value from
+	 * multiple threads, writing directly in a presized
+	 * {@link ConcurrentHashMap}. This uses less memory than
+	 * {@link #parallelMap(Collection, Function, Function, KeyCollision) parallelMap}
+	 * but when multiple elements are mapped to the same key the order in which
+	 * {@code collision} receives their values is undefined.
+	 * 
+	 * @throws NullPointerException if a key or a value is null
+	 */
+	@SuppressWarnings("unchecked")
+	public static <T, K, V> ConcurrentHashMap<K, V> concurrentMap(Collection<T> collection, Function<T, K> keyGen,
+			Function<T, V> valGen, KeyCollision<? super K, V> collision) {
+		Object[] elements = collection.toArray();
+		ConcurrentHashMap<K, V> map = new ConcurrentHashMap<>(elements.length);
+		ParallelTasks.forRange(0, elements.length, ParallelTasks.DEFAULT_THRESHOLD, (from, to) -> {
+			for(int i = from; i < to; i++) {
+				T v = (T) elements[i];
+				K key = keyGen.apply(v);
+				map.merge(key, valGen.apply(v), (existing, added) -> collision.resolve(key, existing, added));
+			}
+		});
+		return map;
+	}
+	
+	private static <K, V> void putResolved(Map<K, V> map, K key, V value, KeyCollision<? super K, V> collision) {
+		V existing = map.get(key);
+		if(existing == null && !map.containsKey(key))
+			map.put(key, value);
+		else
+			map.put(key, collision.resolve(key, existing, value));
+	}
+	
+	/**
+	 * Merges the maps of two consecutive chunks, the entries of {@code left}
+	 * come first. The smaller map is merged in the larger one.
+	 */
+	private static <K, V> Map<K, V> mergeOrdered(Map<K, V> left, Map<K, V> right, KeyCollision<? super K, V> collision) {
+		if(left.size() >= right.size()) {
+			for(Entry<K, V> e : right.entrySet())
+				putResolved(left, e.getKey(), e.getValue(), collision);
+			return left;
+		}
+		for(Entry<K, V> e : left.entrySet()) {
+			K key = e.getKey();
+			V existing = right.get(key);
+			if(existing == null && !right.containsKey(key))
+				right.put(key, e.getValue());
+			else
+				right.put(key, collision.resolve(key, e.getValue(), existing));
+		}
+		return right;
+	}
 
 	public static <K, V> Map<K, V> mapKeys(Collection<K> collection, Function<K, V> valGen) {
 		return map(collection, Function.identity(), valGen);
@@ -27,7 +184,7 @@ public class MapOperator {
 	public static <K, V> Map<K, V> map(K[] keys, V[] values) {
 		if(keys.length != values.length)
 			throw new IllegalArgumentException("Keys and values have different lengths");
-		Map<K, V> map = new HashMap<>();
+		Map<K, V> map = new HashMap<>(hashCapacity(keys.length));
 		for(int i = 0; i < keys.length; i++)
 			map.put(keys[i], values[i]);
 		return map;
@@ -36,7 +193,7 @@ public class MapOperator {
 	public static <K, V> Map<K, V> map(Collection<? extends K> keys, Collection<? extends V> values) {
 		if(keys.size() != values.size())
 			throw new IllegalArgumentException("Keys and values have different lengths");
-		Map<K, V> map = new HashMap<>();
+		Map<K, V> map = new HashMap<>(hashCapacity(keys.size()));
 		Iterator<? extends K> ki = keys.iterator();
 		Iterator<? extends V> vi = values.iterator();
 		while(ki.hasNext())
@@ -45,10 +202,65 @@ public class MapOperator {
 	}
 	
 	public static <K, V> Map<K, V> reverse(Map<V, K> map) {
-		Map<K, V> newMap = new HashMap<>();
+		Map<K, V> newMap = new HashMap<>(hashCapacity(map.size()));
 		for(Entry<V, K> e : map.entrySet())
 			newMap.put(e.getValue(), e.getKey());
 		return newMap;
 	}
 	
+	/**
+	 * Same as {@link #reverse(Map)} but returns a frozen bidirectional map, the
+	 * {@link FrozenBiMap#inverse() inverse} of which is a frozen copy of
+	 * {@code map}.
+	 * 
+	 * @throws IllegalArgumentException if two keys of {@code map} are
+	 *         associated with the same value
+	 */
+	public static <K, V> FrozenBiMap<K, V> reverseFrozen(Map<V, K> map) {
+		return FrozenBiMap.copyOf(map).inverse();
+	}
+	
+	/**
+	 * Returns an immutable compact copy of {@code map} with faster lookups,
+	 * for maps that are only read once built. See {@link FrozenMap} for the
+	 * different layouts.
+	 */
+	public static <K, V> FrozenMap<K, V> freeze(Map<K, V> map) {
+		return FrozenMap.copyOf(map);
+	}
+	
+	/**
+	 * Same as {@link #map(Collection, Function, Function)} with {@code int} keys,
+	 * the returned map does not box keys nor create an object per entry.
+	 */
+	public static <T, V> IntObjectMap<V> mapByInt(Collection<T> collection, ToIntFunction<T> keyGen, Function<T, V> valGen) {
+		IntObjectMap<V> map = new IntObjectMap<>(collection.size());
+		for(T v : collection)
+			map.put(keyGen.applyAsInt(v), valGen.apply(v));
+		return map;
+	}
+	
+	/**
+	 * Same as {@link #map(Collection, Function, Function)} with {@code long}
+	 * keys, the returned map does not box keys nor create an object per entry.
+	 */
+	public static <T, V> LongObjectMap<V> mapByLong(Collection<T> collection, ToLongFunction<T> keyGen, Function<T, V> valGen) {
+		LongObjectMap<V> map = new LongObjectMap<>(collection.size());
+		for(T v : collection)
+			map.put(keyGen.applyAsLong(v), valGen.apply(v));
+		return map;
+	}
+	
+	/**
+	 * Same as {@link #map(Collection, Function, Function)} with {@code int}
+	 * values, the returned map does not box values nor create an object per
+	 * entry.
+	 */
+	public static <T, K> ObjectIntMap<K> mapToInt(Collection<T> collection, Function<T, K> keyGen, ToIntFunction<T> valGen) {
+		ObjectIntMap<K> map = new ObjectIntMap<>(collection.size());
+		for(T v : collection)
+			map.put(keyGen.apply(v), valGen.applyAsInt(v));
+		return map;
+	}
+	
 }
@@ -0,0 +1,311 @@
+package fr.wonder.commons.utils;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Implementation of {@link StringUtils#toObjectString(Object, int, int)}.
+ * <p>
+ * The way objects of a class are printed is computed once per class and
+ * cached: the accessible public fields of a class are resolved to method
+ * handles adapted to take an {@code Object}, primitive fields are read without
+ * boxing.
+ */
+class ObjectPrinter {
+
+	private static final String CYCLE = "<cycle>";
+	private static final String TRUNCATED = "...";
+
+	private enum Kind {
+		NULL, VALUE, STRING, OBJECT_ARRAY,
+		BOOLEAN_ARRAY, BYTE_ARRAY, CHAR_ARRAY, SHORT_ARRAY,
+		INT_ARRAY, LONG_ARRAY, FLOAT_ARRAY, DOUBLE_ARRAY,
+		FIELDS
+	}
+
+	private enum FieldKind {
+		OBJECT, BOOLEAN, BYTE, CHAR, SHORT, INT, LONG, FLOAT, DOUBLE
+	}
+
+	private static class Plan {
+
+		private final Kind kind;
+		/** "name=" of each field */
+		private final String[] prefixes;
+		private final FieldKind[] fieldKinds;
+		/** getters of type (Object)T with T the field type, or Object for references */
+		private final MethodHandle[] getters;
+
+		Plan(Kind kind) {
+			this(kind, null, null, null);
+		}
+
+		Plan(Kind kind, String[] prefixes, FieldKind[] fieldKinds, MethodHandle[] getters) {
+			this.kind = kind;
+			this.prefixes = prefixes;
+			this.fieldKinds = fieldKinds;
+			this.getters = getters;
+		}
+	}
+
+	private static final ClassValue<Plan> plans = new ClassValue<>() {
+		@Override
+		protected Plan computeValue(Class<?> type) {
+			return createPlan(type);
+		}
+	};
+
+	private final StringBuilder sb;
+	private final int maxDepth;
+	private final int maxLength;
+	/** the objects currently being printed */
+	private final Map<Object, Boolean> path = new IdentityHashMap<>();
+	private boolean truncated;
+
+	ObjectPrinter(StringBuilder sb, int maxDepth, int maxLength) {
+		this.sb = sb;
+		this.maxDepth = maxDepth;
+		this.maxLength = maxLength;
+	}
+
+	private static Plan createPlan(Class<?> type) {
+		if(Number.class.isAssignableFrom(type) || type == Boolean.class ||
+				type == Character.class || Enum.class.isAssignableFrom(type))
+			return new Plan(Kind.VALUE);
+		if(type == String.class)
+			return new Plan(Kind.STRING);
+		if(type.isArray()) {
+			Class<?> component = type.getComponentType();
+			if(!component.isPrimitive())           return new Plan(Kind.OBJECT_ARRAY);
+			else if(component == boolean.class)    return new Plan(Kind.BOOLEAN_ARRAY);
+			else if(component == byte.class)       return new Plan(Kind.BYTE_ARRAY);
+			else if(component == char.class)       return new Plan(Kind.CHAR_ARRAY);
+			else if(component == short.class)      return new Plan(Kind.SHORT_ARRAY);
+			else if(component == int.class)        return new Plan(Kind.INT_ARRAY);
+			else if(component == long.class)       return new Plan(Kind.LONG_ARRAY);
+			else if(component == float.class)      return new Plan(Kind.FLOAT_ARRAY);
+			else                                   return new Plan(Kind.DOUBLE_ARRAY);
+		}
+		List<String> prefixes = new ArrayList<>();
+		List<FieldKind> kinds = new ArrayList<>();
+		List<MethodHandle> getters = new ArrayList<>();
+		MethodHandles.Lookup lookup = MethodHandles.lookup();
+		for(Field f : type.getFields()) {
+			if(!f.trySetAccessible())
+				continue;
+			MethodHandle getter;
+			try {
+				getter = lookup.unreflectGetter(f);
+			} catch (IllegalAccessException e) {
+				throw new IllegalArgumentException("Unable to access field " + f.getName(), e);
+			}
+			if(Modifier.isStatic(f.getModifiers()))
+				getter = MethodHandles.dropArguments(getter, 0, Object.class);
+			Class<?> ft = f.getType();
+			FieldKind kind = fieldKind(ft);
+			getter = getter.asType(MethodType.methodType(ft.isPrimitive() ? ft : Object.class, Object.class));
+			prefixes.add(f.getName() + "=");
+			kinds.add(kind);
+			getters.add(getter);
+		}
+		return new Plan(Kind.FIELDS,
+				prefixes.toArray(String[]::new),
+				kinds.toArray(FieldKind[]::new),
+				getters.toArray(MethodHandle[]::new));
+	}
+
+	private static FieldKind fieldKind(Class<?> type) {
+		if(!type.isPrimitive())      return FieldKind.OBJECT;
+		if(type == boolean.class)    return FieldKind.BOOLEAN;
+		if(type == byte.class)       return FieldKind.BYTE;
+		if(type == char.class)       return FieldKind.CHAR;
+		if(type == short.class)      return FieldKind.SHORT;
+		if(type == int.class)        return FieldKind.INT;
+		if(type == long.class)       return FieldKind.LONG;
+		if(type == float.class)      return FieldKind.FLOAT;
+		return FieldKind.DOUBLE;
+	}
+
+	/** Returns true if the length budget is exhausted, appending the truncation marker once */
+	private boolean exhausted() {
+		if(truncated)
+			return true;
+		if(sb.length() < maxLength)
+			return false;
+		sb.append(TRUNCATED);
+		truncated = true;
+		return true;
+	}
+
+	/** Appends the separator preceding element {@code i}, returns false if the budget is exhausted */
+	private boolean separate(int i) {
+		if(truncated)
+			return false;
+		if(i != 0)
+			sb.append(", ");
+		return !exhausted();
+	}
+
+	void print(Object o, int depth) {
+		if(exhausted())
+			return;
+		Plan plan = o == null ? null : plans.get(o.getClass());
+		Kind kind = plan == null ? Kind.NULL : plan.kind;
+		switch(kind) {
+		case NULL:   sb.append("null"); return;
+		case VALUE:  sb.append(o); return;
+		case STRING: sb.append('"').append((String) o).append('"'); return;
+		default: break;
+		}
+		if(depth >= maxDepth) {
+			sb.append(TRUNCATED);
+			return;
+		}
+		if(path.put(o, Boolean.TRUE) != null) {
+			sb.append(CYCLE);
+			return;
+		}
+		try {
+			switch(kind) {
+			case OBJECT_ARRAY:  printArray((Object[]) o, depth); break;
+			case BOOLEAN_ARRAY: printArray((boolean[]) o); break;
+			case BYTE_ARRAY:    printArray((byte[]) o); break;
+			case CHAR_ARRAY:    printArray((char[]) o); break;
+			case SHORT_ARRAY:   printArray((short[]) o); break;
+			case INT_ARRAY:     printArray((int[]) o); break;
+			case LONG_ARRAY:    printArray((long[]) o); break;
+			case FLOAT_ARRAY:   printArray((float[]) o); break;
+			case DOUBLE_ARRAY:  printArray((double[]) o); break;
+			default:            printFields(o, plan, depth); break;
+			}
+		} finally {
+			path.remove(o);
+		}
+	}
+
+	private void printFields(Object o, Plan plan, int depth) {
+		sb.append('{');
+		for(int i = 0; i < plan.getters.length; i++) {
+			if(!separate(i))
+				return;
+			sb.append(plan.prefixes[i]);
+			MethodHandle getter = plan.getters[i];
+			try {
+				switch(plan.fieldKinds[i]) {
+				case BOOLEAN: sb.append((boolean) getter.invokeExact(o)); break;
+				case BYTE:    sb.append((byte) getter.invokeExact(o)); break;
+				case CHAR:    sb.append((char) getter.invokeExact(o)); break;
+				case SHORT:   sb.append((short) getter.invokeExact(o)); break;
+				case INT:     sb.append((int) getter.invokeExact(o)); break;
+				case LONG:    sb.append((long) getter.invokeExact(o)); break;
+				case FLOAT:   sb.append((float) getter.invokeExact(o)); break;
+				case DOUBLE:  sb.append((double) getter.invokeExact(o)); break;
+				default:      print((Object) getter.invokeExact(o), depth + 1); break;
+				}
+			} catch (RuntimeException | Error e) {
+				throw e;
+			} catch (Throwable t) {
+				throw new IllegalStateException("Unable to read field " + plan.prefixes[i], t);
+			}
+		}
+		sb.append('}');
+	}
+
+	private void printArray(Object[] array, int depth) {
+		sb.append('[');
+		for(int i = 0; i < array.length; i++) {
+			if(!separate(i))
+				return;
+			print(array[i], depth + 1);
+		}
+		sb.append(']');
+	}
+
+	private void printArray(boolean[] array) {
+		sb.append('[');
+		for(int i = 0; i < array.length; i++) {
+			if(!separate(i))
+				return;
+			sb.append(array[i]);
+		}
+		sb.append(']');
+	}
+
+	private void printArray(byte[] array) {
+		sb.append('[');
+		for(int i = 0; i < array.length; i++) {
+			if(!separate(i))
+				return;
+			sb.append(array[i]);
+		}
+		sb.append(']');
+	}
+
+	private void printArray(char[] array) {
+		sb.append('[');
+		for(int i = 0; i < array.length; i++) {
+			if(!separate(i))
+				return;
+			sb.append(array[i]);
+		}
+		sb.append(']');
+	}
+
+	private void printArray(short[] array) {
+		sb.append('[');
+		for(int i = 0; i < array.length; i++) {
+			if(!separate(i))
+				return;
+			sb.append(array[i]);
+		}
+		sb.append(']');
+	}
+
+	private void printArray(int[] array) {
+		sb.append('[');
+		for(int i = 0; i < array.length; i++) {
+			if(!separate(i))
+				return;
+			sb.append(array[i]);
+		}
+		sb.append(']');
+	}
+
+	private void printArray(long[] array) {
+		sb.append('[');
+		for(int i = 0; i < array.length; i++) {
+			if(!separate(i))
+				return;
+			sb.append(array[i]);
+		}
+		sb.append(']');
+	}
+
+	private void printArray(float[] array) {
+		sb.append('[');
+		for(int i = 0; i < array.length; i++) {
+			if(!separate(i))
+				return;
+			sb.append(array[i]);
+		}
+		sb.append(']');
+	}
+
+	private void printArray(double[] array) {
+		sb.append('[');
+		for(int i = 0; i < array.length; i++) {
+			if(!separate(i))
+				return;
+			sb.append(array[i]);
+		}
+		sb.append(']');
+	}
+
+}
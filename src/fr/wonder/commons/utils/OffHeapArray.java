@@ -0,0 +1,400 @@
+package fr.wonder.commons.utils;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.Flushable;
+import java.io.IOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Base class of the off-heap primitive arrays ({@link OffHeapIntArray},
+ * {@link OffHeapLongArray}, {@link OffHeapDoubleArray}).
+ * <p>
+ * Off-heap arrays store their elements outside of the java heap, in direct
+ * buffers or in memory mapped files, so that very large datasets do not have
+ * to be traced nor copied by the garbage collector. They can be indexed with
+ * {@code long}s and may hold more than {@code Integer.MAX_VALUE} elements.
+ * <p>
+ * Memory is split in chunks of at most 1Gb, growing an array only reallocates
+ * its last chunk. Elements are stored in little endian order.
+ * <p>
+ * An array must be {@link #close() closed} once it is no longer used, a
+ * closed array cannot be accessed anymore. Closing an array releases its
+ * memory (or unmaps its file) immediately, as does growing it for the chunk it
+ * replaces, using the buffer cleaner of the {@code jdk.unsupported} module
+ * (memory segments, which would allow that without internal APIs, are still
+ * incubating in java 17). Off-heap arrays cannot be used if that module is
+ * not available.
+ * <p>
+ * A file backed array ({@code map(File)}) keeps a small header containing its
+ * size before the elements, the data can be reopened later without any
+ * deserialization. Changes are written back to the file when the array is
+ * {@link #flush() flushed} or closed.
+ * <p>
+ * Off-heap arrays are not thread safe.
+ */
+public abstract class OffHeapArray implements Closeable, Flushable {
+
+	private static final int CHUNK_SHIFT = 30;
+	private static final long CHUNK_SIZE = 1L << CHUNK_SHIFT;
+	private static final long CHUNK_MASK = CHUNK_SIZE - 1;
+
+	private static final int HEADER_MAGIC = 0x57434f48; // "WCOH"
+	private static final int HEADER_SIZE = 16;
+
+	private static final int MIN_CAPACITY = 16;
+
+	/** {@code Unsafe.invokeCleaner(ByteBuffer)} bound to the unsafe instance */
+	private static final MethodHandle CLEANER = findCleaner();
+
+	/** log2 of the size of an element in bytes */
+	private final int elementShift;
+	/** the JVM descriptor of the element type, stored in the header of mapped files */
+	private final char elementType;
+	/** non-null for file backed arrays */
+	private final FileChannel channel;
+
+	private ByteBuffer[] chunks = new ByteBuffer[0];
+	private long capacity;
+	protected long size;
+
+	/** Creates a direct buffer array */
+	protected OffHeapArray(int elementShift, char elementType, long initialCapacity) {
+		if(initialCapacity < 0)
+			throw new IllegalArgumentException("Negative capacity " + initialCapacity);
+		this.elementShift = elementShift;
+		this.elementType = elementType;
+		this.channel = null;
+		grow(Math.max(MIN_CAPACITY, initialCapacity));
+	}
+
+	/** Creates or reopens a file backed array */
+	protected OffHeapArray(int elementShift, char elementType, File file) throws IOException {
+		this.elementShift = elementShift;
+		this.elementType = elementType;
+		this.channel = FileChannel.open(file.toPath(),
+				StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+		try {
+			ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+			if(channel.size() == 0) {
+				writeHeader();
+			} else {
+				if(channel.read(header, 0) != HEADER_SIZE || header.getInt(0) != HEADER_MAGIC)
+					throw new IOException("File " + file + " is not an off-heap array");
+				if(header.getInt(4) != elementType)
+					throw new IOException("File " + file + " does not contain elements of type " + elementType);
+				size = header.getLong(8);
+				if(size < 0 || HEADER_SIZE + (size << elementShift) > channel.size())
+					throw new IOException("File " + file + " is truncated");
+			}
+			grow(Math.max(MIN_CAPACITY, size));
+		} catch (IOException | RuntimeException e) {
+			channel.close();
+			throw e;
+		}
+	}
+
+	/** Returns the number of elements of this array */
+	public long size() {
+		return size;
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/** Returns the number of elements this array can hold without growing */
+	public long capacity() {
+		return capacity;
+	}
+
+	/** Returns true if this array is backed by a file */
+	public boolean isMapped() {
+		return channel != null;
+	}
+
+	public boolean isClosed() {
+		return chunks == null;
+	}
+
+	/** Removes all elements, the allocated memory is kept */
+	public OffHeapArray clear() {
+		ensureOpen();
+		size = 0;
+		return this;
+	}
+
+	/**
+	 * Makes sure this array can hold at least {@code minCapacity} elements,
+	 * growing it if necessary.
+	 */
+	public OffHeapArray ensureCapacity(long minCapacity) {
+		ensureOpen();
+		if(minCapacity > capacity)
+			grow(Math.max(minCapacity, capacity + (capacity >> 1)));
+		return this;
+	}
+
+	public OffHeapArray removeAt(long i) {
+		return removeAt(i, 1);
+	}
+
+	/** Removes {@code count} elements starting at index {@code i}, shifting the following ones */
+	public OffHeapArray removeAt(long i, long count) {
+		if(count < 0)
+			throw new IndexOutOfBoundsException("Cannot remove less than zero elements");
+		checkPosition(i);
+		checkPosition(i + count);
+		move(i + count, i, size - i - count);
+		size -= count;
+		return this;
+	}
+
+	/**
+	 * Writes back the content of a file backed array to its file, does nothing
+	 * for direct arrays.
+	 */
+	@Override
+	public void flush() throws IOException {
+		ensureOpen();
+		if(channel == null)
+			return;
+		for(ByteBuffer chunk : chunks)
+			((MappedByteBuffer) chunk).force();
+		writeHeader();
+		channel.force(false);
+	}
+
+	@Override
+	public void close() throws IOException {
+		if(chunks == null)
+			return;
+		try {
+			if(channel != null) {
+				try {
+					flush();
+				} finally {
+					channel.close();
+				}
+			}
+		} finally {
+			ByteBuffer[] released = chunks;
+			chunks = null;
+			capacity = size = 0;
+			for(ByteBuffer chunk : released)
+				release(chunk);
+		}
+	}
+
+	private static MethodHandle findCleaner() {
+		try {
+			Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+			Field field = unsafeClass.getDeclaredField("theUnsafe");
+			field.setAccessible(true);
+			MethodHandle cleaner = MethodHandles.lookup().findVirtual(unsafeClass, "invokeCleaner",
+					MethodType.methodType(void.class, ByteBuffer.class));
+			return cleaner.bindTo(field.get(null));
+		} catch (ReflectiveOperationException | RuntimeException e) {
+			throw new IllegalStateException("Unable to access the buffer cleaner of jdk.unsupported", e);
+		}
+	}
+
+	/** Frees the memory of a direct or mapped buffer, which must not be accessed anymore */
+	private static void release(ByteBuffer buffer) {
+		if(buffer == null)
+			return;
+		try {
+			CLEANER.invokeExact(buffer);
+		} catch (RuntimeException | Error e) {
+			throw e;
+		} catch (Throwable t) {
+			throw new IllegalStateException("Unable to release off-heap memory", t);
+		}
+	}
+
+	private void writeHeader() throws IOException {
+		ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+		header.putInt(0, HEADER_MAGIC);
+		header.putInt(4, elementType);
+		header.putLong(8, size);
+		channel.write(header, 0);
+	}
+
+	private void grow(long newCapacity) {
+		long bytes = newCapacity << elementShift;
+		if(bytes < 0 || (bytes >>> CHUNK_SHIFT) >= Integer.MAX_VALUE)
+			throw new OutOfMemoryError("Off-heap array too large: " + newCapacity);
+		int oldCount = chunks.length;
+		int newCount = (int) ((bytes + CHUNK_MASK) >>> CHUNK_SHIFT);
+		ByteBuffer[] newChunks = Arrays.copyOf(chunks, newCount);
+		for(int c = Math.max(0, oldCount-1); c < newCount; c++) {
+			int length = (int) Math.min(CHUNK_SIZE, bytes - ((long) c << CHUNK_SHIFT));
+			if(c < oldCount && chunks[c].capacity() >= length)
+				continue;
+			ByteBuffer chunk = allocateChunk(c, length);
+			// mapped chunks read the previous content from the file
+			if(c < oldCount && channel == null)
+				chunk.put(0, chunks[c], 0, chunks[c].capacity());
+			newChunks[c] = chunk;
+		}
+		ByteBuffer[] oldChunks = chunks;
+		chunks = newChunks;
+		capacity = newCapacity;
+		// only the last chunk may have been replaced
+		if(oldCount > 0 && oldChunks[oldCount-1] != newChunks[oldCount-1])
+			release(oldChunks[oldCount-1]);
+	}
+
+	private ByteBuffer allocateChunk(int index, int length) {
+		ByteBuffer chunk;
+		if(channel == null) {
+			chunk = ByteBuffer.allocateDirect(length);
+		} else {
+			try {
+				chunk = channel.map(MapMode.READ_WRITE, HEADER_SIZE + ((long) index << CHUNK_SHIFT), length);
+			} catch (IOException e) {
+				throw new IllegalStateException("Unable to map off-heap array file", e);
+			}
+		}
+		return chunk.order(ByteOrder.LITTLE_ENDIAN);
+	}
+
+	protected final void ensureOpen() {
+		if(chunks == null)
+			throw new IllegalStateException("Off-heap array is closed");
+	}
+
+	/** Checks that {@code index} is a valid element index */
+	protected final void checkIndex(long index) {
+		if(index < 0 || index >= size)
+			throw outOfBounds(index);
+	}
+
+	/** Checks that {@code index} is a valid insertion position */
+	protected final void checkPosition(long index) {
+		if(index < 0 || index > size)
+			throw outOfBounds(index);
+	}
+
+	private RuntimeException outOfBounds(long index) {
+		ensureOpen();
+		return new IndexOutOfBoundsException("Index " + index + " out of bounds for length " + size);
+	}
+
+	/**
+	 * Adds {@code count} elements at the end of this array, their content is
+	 * left to the caller.
+	 *
+	 * @return the index of the first added element
+	 */
+	protected final long append(long count) {
+		ensureCapacity(size + count);
+		long first = size;
+		size += count;
+		return first;
+	}
+
+	/**
+	 * Inserts an element at {@code index}, shifting the following ones, its
+	 * content is left to the caller.
+	 */
+	protected final void insert(long index) {
+		checkPosition(index);
+		ensureCapacity(size + 1);
+		move(index, index + 1, size - index);
+		size++;
+	}
+
+	/** Receives the elements of a range, one chunk at a time */
+	protected interface ChunkVisitor {
+
+		/**
+		 * Visits {@code count} elements stored from byte {@code offset} of
+		 * {@code chunk}, the first one being at index {@code index}.
+		 *
+		 * @return -1 to go on with the next chunk, any other value stops the
+		 *         visit and is returned by {@link OffHeapArray#visit}
+		 */
+		long visit(ByteBuffer chunk, int offset, int count, long index);
+
+	}
+
+	/**
+	 * Visits the elements of the range [from,to) chunk by chunk, so that
+	 * subclasses can loop over contiguous elements.
+	 *
+	 * @return the first value returned by {@code visitor} that is not -1, or -1
+	 */
+	protected final long visit(long from, long to, ChunkVisitor visitor) {
+		ensureOpen();
+		if(from < 0 || from > to || to > size)
+			throw new IndexOutOfBoundsException("Range [" + from + "," + to + ") out of bounds for length " + size);
+		while(from < to) {
+			int offset = offset(from);
+			int count = (int) Math.min(to - from, (CHUNK_SIZE - offset) >> elementShift);
+			long result = visitor.visit(chunk(from), offset, count, from);
+			if(result != -1)
+				return result;
+			from += count;
+		}
+		return -1;
+	}
+
+	/** Returns the chunk containing the element at {@code index} */
+	protected final ByteBuffer chunk(long index) {
+		return chunks[(int) ((index << elementShift) >>> CHUNK_SHIFT)];
+	}
+
+	/** Returns the byte offset of the element at {@code index} in its chunk */
+	protected final int offset(long index) {
+		return (int) ((index << elementShift) & CHUNK_MASK);
+	}
+
+	/**
+	 * Moves {@code count} elements from index {@code from} to index {@code to},
+	 * source and destination ranges may overlap.
+	 */
+	protected final void move(long from, long to, long count) {
+		if(count == 0 || from == to)
+			return;
+		long src = from << elementShift, dst = to << elementShift;
+		long bytes = count << elementShift;
+		byte[] tmp = new byte[(int) Math.min(bytes, 1 << 16)];
+		// copy blocks through tmp, starting from the end if moving forward
+		boolean backward = dst > src;
+		for(long done = 0; done < bytes; ) {
+			int block = (int) Math.min(tmp.length, bytes - done);
+			long s = backward ? src + bytes - done - block : src + done;
+			long d = backward ? dst + bytes - done - block : dst + done;
+			copyBytes(s, tmp, block, true);
+			copyBytes(d, tmp, block, false);
+			done += block;
+		}
+	}
+
+	private void copyBytes(long position, byte[] tmp, int length, boolean read) {
+		int done = 0;
+		while(done < length) {
+			ByteBuffer chunk = chunks[(int) (position >>> CHUNK_SHIFT)];
+			int offset = (int) (position & CHUNK_MASK);
+			int n = Math.min(length - done, chunk.capacity() - offset);
+			if(read)
+				chunk.get(offset, tmp, done, n);
+			else
+				chunk.put(offset, tmp, done, n);
+			done += n;
+			position += n;
+		}
+	}
+
+}
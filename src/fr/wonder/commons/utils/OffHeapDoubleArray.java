@@ -0,0 +1,151 @@
+package fr.wonder.commons.utils;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * An off-heap array of {@code double}s, see {@link OffHeapArray}.
+ * <p>
+ * Example use case: <blockquote>
+ *
+ * <pre>
+ *   try(OffHeapDoubleArray ids = OffHeapDoubleArray.map(file)) {
+ *     ids.add(4).add(8).addAt(0, 15);
+ *     ids.removeAt(1);
+ *     // ids is { 15, 8 } and will still be the next time the file is mapped
+ *   }
+ * </pre>
+ *
+ * </blockquote>
+ */
+public class OffHeapDoubleArray extends OffHeapArray {
+
+	private static final char TYPE = 'D';
+	private static final int SHIFT = 3;
+
+	/** Creates an empty direct array */
+	public OffHeapDoubleArray() {
+		this(0);
+	}
+
+	/** Creates an empty direct array able to hold {@code capacity} elements before growing */
+	public OffHeapDoubleArray(long capacity) {
+		super(SHIFT, TYPE, capacity);
+	}
+
+	private OffHeapDoubleArray(File file) throws IOException {
+		super(SHIFT, TYPE, file);
+	}
+
+	/**
+	 * Maps an array stored in {@code file}, if the file does not exist or is
+	 * empty a new empty array is created.
+	 *
+	 * @throws IOException if the file cannot be opened or does not contain an
+	 *                     off-heap array of {@code double}s
+	 */
+	public static OffHeapDoubleArray map(File file) throws IOException {
+		return new OffHeapDoubleArray(file);
+	}
+
+	/** Creates a direct array containing the given values */
+	public static OffHeapDoubleArray of(double... values) {
+		return new OffHeapDoubleArray(values.length).add(values);
+	}
+
+	public double get(long i) {
+		checkIndex(i);
+		return chunk(i).getDouble(offset(i));
+	}
+
+	public OffHeapDoubleArray set(long i, double x) {
+		checkIndex(i);
+		chunk(i).putDouble(offset(i), x);
+		return this;
+	}
+
+	public OffHeapDoubleArray add(double x) {
+		long i = append(1);
+		chunk(i).putDouble(offset(i), x);
+		return this;
+	}
+
+	public OffHeapDoubleArray add(double... xs) {
+		long first = append(xs.length);
+		visit(first, size, (chunk, offset, count, index) -> {
+			chunk.asDoubleBuffer().put(offset >> SHIFT, xs, (int) (index - first), count);
+			return -1;
+		});
+		return this;
+	}
+
+	public OffHeapDoubleArray addAt(long i, double x) {
+		insert(i);
+		chunk(i).putDouble(offset(i), x);
+		return this;
+	}
+
+	@Override
+	public OffHeapDoubleArray removeAt(long i) {
+		super.removeAt(i);
+		return this;
+	}
+
+	@Override
+	public OffHeapDoubleArray removeAt(long i, long count) {
+		super.removeAt(i, count);
+		return this;
+	}
+
+	public OffHeapDoubleArray fill(double x) {
+		visit(0, size, (chunk, offset, count, index) -> {
+			for(int j = 0; j < count; j++)
+				chunk.putDouble(offset + (j << SHIFT), x);
+			return -1;
+		});
+		return this;
+	}
+
+	public long indexOf(double x) {
+		return visit(0, size, (chunk, offset, count, index) -> {
+			for(int j = 0; j < count; j++)
+				if(chunk.getDouble(offset + (j << SHIFT)) == x)
+					return index + j;
+			return -1;
+		});
+	}
+
+	public boolean contains(double x) {
+		return indexOf(x) != -1;
+	}
+
+	/**
+	 * Copies the content of this array on the heap.
+	 *
+	 * @throws IllegalStateException if this array is too large to fit in a java array
+	 */
+	public double[] toArray() {
+		ensureOpen();
+		if(size > Integer.MAX_VALUE - 8)
+			throw new IllegalStateException("Array too large to be copied on heap");
+		double[] array = new double[(int) size];
+		visit(0, size, (chunk, offset, count, index) -> {
+			chunk.asDoubleBuffer().get(offset >> SHIFT, array, (int) index, count);
+			return -1;
+		});
+		return array;
+	}
+
+	@Override
+	public OffHeapDoubleArray clear() {
+		super.clear();
+		return this;
+	}
+
+	@Override
+	public OffHeapDoubleArray ensureCapacity(long minCapacity) {
+		super.ensureCapacity(minCapacity);
+		return this;
+	}
+
+}
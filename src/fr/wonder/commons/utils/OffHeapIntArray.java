@@ -0,0 +1,151 @@
+package fr.wonder.commons.utils;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * An off-heap array of {@code int}s, see {@link OffHeapArray}.
+ * <p>
+ * Example use case: <blockquote>
+ *
+ * <pre>
+ *   try(OffHeapIntArray ids = OffHeapIntArray.map(file)) {
+ *     ids.add(4).add(8).addAt(0, 15);
+ *     ids.removeAt(1);
+ *     // ids is { 15, 8 } and will still be the next time the file is mapped
+ *   }
+ * </pre>
+ *
+ * </blockquote>
+ */
+public class OffHeapIntArray extends OffHeapArray {
+
+	private static final char TYPE = 'I';
+	private static final int SHIFT = 2;
+
+	/** Creates an empty direct array */
+	public OffHeapIntArray() {
+		this(0);
+	}
+
+	/** Creates an empty direct array able to hold {@code capacity} elements before growing */
+	public OffHeapIntArray(long capacity) {
+		super(SHIFT, TYPE, capacity);
+	}
+
+	private OffHeapIntArray(File file) throws IOException {
+		super(SHIFT, TYPE, file);
+	}
+
+	/**
+	 * Maps an array stored in {@code file}, if the file does not exist or is
+	 * empty a new empty array is created.
+	 *
+	 * @throws IOException if the file cannot be opened or does not contain an
+	 *                     off-heap array of {@code int}s
+	 */
+	public static OffHeapIntArray map(File file) throws IOException {
+		return new OffHeapIntArray(file);
+	}
+
+	/** Creates a direct array containing the given values */
+	public static OffHeapIntArray of(int... values) {
+		return new OffHeapIntArray(values.length).add(values);
+	}
+
+	public int get(long i) {
+		checkIndex(i);
+		return chunk(i).getInt(offset(i));
+	}
+
+	public OffHeapIntArray set(long i, int x) {
+		checkIndex(i);
+		chunk(i).putInt(offset(i), x);
+		return this;
+	}
+
+	public OffHeapIntArray add(int x) {
+		long i = append(1);
+		chunk(i).putInt(offset(i), x);
+		return this;
+	}
+
+	public OffHeapIntArray add(int... xs) {
+		long first = append(xs.length);
+		visit(first, size, (chunk, offset, count, index) -> {
+			chunk.asIntBuffer().put(offset >> SHIFT, xs, (int) (index - first), count);
+			return -1;
+		});
+		return this;
+	}
+
+	public OffHeapIntArray addAt(long i, int x) {
+		insert(i);
+		chunk(i).putInt(offset(i), x);
+		return this;
+	}
+
+	@Override
+	public OffHeapIntArray removeAt(long i) {
+		super.removeAt(i);
+		return this;
+	}
+
+	@Override
+	public OffHeapIntArray removeAt(long i, long count) {
+		super.removeAt(i, count);
+		return this;
+	}
+
+	public OffHeapIntArray fill(int x) {
+		visit(0, size, (chunk, offset, count, index) -> {
+			for(int j = 0; j < count; j++)
+				chunk.putInt(offset + (j << SHIFT), x);
+			return -1;
+		});
+		return this;
+	}
+
+	public long indexOf(int x) {
+		return visit(0, size, (chunk, offset, count, index) -> {
+			for(int j = 0; j < count; j++)
+				if(chunk.getInt(offset + (j << SHIFT)) == x)
+					return index + j;
+			return -1;
+		});
+	}
+
+	public boolean contains(int x) {
+		return indexOf(x) != -1;
+	}
+
+	/**
+	 * Copies the content of this array on the heap.
+	 *
+	 * @throws IllegalStateException if this array is too large to fit in a java array
+	 */
+	public int[] toArray() {
+		ensureOpen();
+		if(size > Integer.MAX_VALUE - 8)
+			throw new IllegalStateException("Array too large to be copied on heap");
+		int[] array = new int[(int) size];
+		visit(0, size, (chunk, offset, count, index) -> {
+			chunk.asIntBuffer().get(offset >> SHIFT, array, (int) index, count);
+			return -1;
+		});
+		return array;
+	}
+
+	@Override
+	public OffHeapIntArray clear() {
+		super.clear();
+		return this;
+	}
+
+	@Override
+	public OffHeapIntArray ensureCapacity(long minCapacity) {
+		super.ensureCapacity(minCapacity);
+		return this;
+	}
+
+}
@@ -0,0 +1,151 @@
+package fr.wonder.commons.utils;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * An off-heap array of {@code long}s, see {@link OffHeapArray}.
+ * <p>
+ * Example use case: <blockquote>
+ *
+ * <pre>
+ *   try(OffHeapLongArray ids = OffHeapLongArray.map(file)) {
+ *     ids.add(4).add(8).addAt(0, 15);
+ *     ids.removeAt(1);
+ *     // ids is { 15, 8 } and will still be the next time the file is mapped
+ *   }
+ * </pre>
+ *
+ * </blockquote>
+ */
+public class OffHeapLongArray extends OffHeapArray {
+
+	private static final char TYPE = 'J';
+	private static final int SHIFT = 3;
+
+	/** Creates an empty direct array */
+	public OffHeapLongArray() {
+		this(0);
+	}
+
+	/** Creates an empty direct array able to hold {@code capacity} elements before growing */
+	public OffHeapLongArray(long capacity) {
+		super(SHIFT, TYPE, capacity);
+	}
+
+	private OffHeapLongArray(File file) throws IOException {
+		super(SHIFT, TYPE, file);
+	}
+
+	/**
+	 * Maps an array stored in {@code file}, if the file does not exist or is
+	 * empty a new empty array is created.
+	 *
+	 * @throws IOException if the file cannot be opened or does not contain an
+	 *                     off-heap array of {@code long}s
+	 */
+	public static OffHeapLongArray map(File file) throws IOException {
+		return new OffHeapLongArray(file);
+	}
+
+	/** Creates a direct array containing the given values */
+	public static OffHeapLongArray of(long... values) {
+		return new OffHeapLongArray(values.length).add(values);
+	}
+
+	public long get(long i) {
+		checkIndex(i);
+		return chunk(i).getLong(offset(i));
+	}
+
+	public OffHeapLongArray set(long i, long x) {
+		checkIndex(i);
+		chunk(i).putLong(offset(i), x);
+		return this;
+	}
+
+	public OffHeapLongArray add(long x) {
+		long i = append(1);
+		chunk(i).putLong(offset(i), x);
+		return this;
+	}
+
+	public OffHeapLongArray add(long... xs) {
+		long first = append(xs.length);
+		visit(first, size, (chunk, offset, count, index) -> {
+			chunk.asLongBuffer().put(offset >> SHIFT, xs, (int) (index - first), count);
+			return -1;
+		});
+		return this;
+	}
+
+	public OffHeapLongArray addAt(long i, long x) {
+		insert(i);
+		chunk(i).putLong(offset(i), x);
+		return this;
+	}
+
+	@Override
+	public OffHeapLongArray removeAt(long i) {
+		super.removeAt(i);
+		return this;
+	}
+
+	@Override
+	public OffHeapLongArray removeAt(long i, long count) {
+		super.removeAt(i, count);
+		return this;
+	}
+
+	public OffHeapLongArray fill(long x) {
+		visit(0, size, (chunk, offset, count, index) -> {
+			for(int j = 0; j < count; j++)
+				chunk.putLong(offset + (j << SHIFT), x);
+			return -1;
+		});
+		return this;
+	}
+
+	public long indexOf(long x) {
+		return visit(0, size, (chunk, offset, count, index) -> {
+			for(int j = 0; j < count; j++)
+				if(chunk.getLong(offset + (j << SHIFT)) == x)
+					return index + j;
+			return -1;
+		});
+	}
+
+	public boolean contains(long x) {
+		return indexOf(x) != -1;
+	}
+
+	/**
+	 * Copies the content of this array on the heap.
+	 *
+	 * @throws IllegalStateException if this array is too large to fit in a java array
+	 */
+	public long[] toArray() {
+		ensureOpen();
+		if(size > Integer.MAX_VALUE - 8)
+			throw new IllegalStateException("Array too large to be copied on heap");
+		long[] array = new long[(int) size];
+		visit(0, size, (chunk, offset, count, index) -> {
+			chunk.asLongBuffer().get(offset >> SHIFT, array, (int) index, count);
+			return -1;
+		});
+		return array;
+	}
+
+	@Override
+	public OffHeapLongArray clear() {
+		super.clear();
+		return this;
+	}
+
+	@Override
+	public OffHeapLongArray ensureCapacity(long minCapacity) {
+		super.ensureCapacity(minCapacity);
+		return this;
+	}
+
+}
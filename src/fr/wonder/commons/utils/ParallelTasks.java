@@ -0,0 +1,131 @@
+package fr.wonder.commons.utils;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.BinaryOperator;
+
+/**
+ * Small fork/join helpers shared by the parallel operations of this package.
+ * All tasks run on the common pool, or on the current pool if called from a
+ * fork/join worker.
+ */
+class ParallelTasks {
+
+	/**
+	 * Default minimum amount of elements processed by a single task, below
+	 * that the overhead of splitting is bigger than the gain.
+	 */
+	static final int DEFAULT_THRESHOLD = 1 << 13;
+
+	interface RangeAction {
+		void run(int from, int to);
+	}
+
+	interface RangeReducer<R> {
+		R reduce(int from, int to);
+	}
+
+	static int parallelism() {
+		return ForkJoinTask.inForkJoinPool() ?
+				ForkJoinTask.getPool().getParallelism() :
+				ForkJoinPool.getCommonPoolParallelism();
+	}
+
+	/**
+	 * Returns the size of the chunks an array of the given length should be
+	 * split into so that each worker gets a few chunks, never less than
+	 * {@code threshold} elements per chunk.
+	 */
+	static int chunkSize(int length, int threshold) {
+		int chunks = parallelism() * 4;
+		return Math.max(threshold, (length + chunks - 1) / chunks);
+	}
+
+	static int chunkCount(int length, int chunkSize) {
+		return (length + chunkSize - 1) / chunkSize;
+	}
+
+	/** Invokes the task in the current pool, or in the common pool */
+	static <T> T invoke(ForkJoinTask<T> task) {
+		if(ForkJoinTask.inForkJoinPool())
+			return task.invoke();
+		return ForkJoinPool.commonPool().invoke(task);
+	}
+
+	/** Runs {@code action} on sub-ranges of [from,to) of at most {@code threshold} elements */
+	static void forRange(int from, int to, int threshold, RangeAction action) {
+		if(to - from <= threshold)
+			action.run(from, to);
+		else
+			invoke(new RangeTask(from, to, threshold, action));
+	}
+
+	/**
+	 * Reduces [from,to) by splitting it in sub-ranges of at most {@code threshold}
+	 * elements, {@code combiner} is always called with the result of a range and
+	 * the result of the range directly following it.
+	 */
+	static <R> R reduceRange(int from, int to, int threshold, RangeReducer<R> reducer, BinaryOperator<R> combiner) {
+		if(to - from <= threshold)
+			return reducer.reduce(from, to);
+		return invoke(new ReduceTask<>(from, to, threshold, reducer, combiner));
+	}
+
+	private static class RangeTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final int from, to, threshold;
+		private final RangeAction action;
+
+		RangeTask(int from, int to, int threshold, RangeAction action) {
+			this.from = from;
+			this.to = to;
+			this.threshold = threshold;
+			this.action = action;
+		}
+
+		@Override
+		protected void compute() {
+			if(to - from <= threshold) {
+				action.run(from, to);
+			} else {
+				int mid = (from + to) >>> 1;
+				invokeAll(
+						new RangeTask(from, mid, threshold, action),
+						new RangeTask(mid, to, threshold, action));
+			}
+		}
+	}
+
+	private static class ReduceTask<R> extends RecursiveTask<R> {
+
+		private static final long serialVersionUID = 1L;
+
+		private final int from, to, threshold;
+		private final RangeReducer<R> reducer;
+		private final BinaryOperator<R> combiner;
+
+		ReduceTask(int from, int to, int threshold, RangeReducer<R> reducer, BinaryOperator<R> combiner) {
+			this.from = from;
+			this.to = to;
+			this.threshold = threshold;
+			this.reducer = reducer;
+			this.combiner = combiner;
+		}
+
+		@Override
+		protected R compute() {
+			if(to - from <= threshold)
+				return reducer.reduce(from, to);
+			int mid = (from + to) >>> 1;
+			ReduceTask<R> right = new ReduceTask<>(mid, to, threshold, reducer, combiner);
+			right.fork();
+			R left = new ReduceTask<>(from, mid, threshold, reducer, combiner).compute();
+			return combiner.apply(left, right.join());
+		}
+	}
+
+}
@@ -0,0 +1,196 @@
+package fr.wonder.commons.utils;
+
+import java.util.Arrays;
+
+/**
+ * Search primitives used by {@link ArrayOperator} on primitive arrays.
+ * <p>
+ * All methods search the range [from,to) of the given array, floating point
+ * values are compared with {@code ==}.
+ */
+class PrimitiveSearch {
+
+	/** Above this amount of needles multi-needle searches use binary searches */
+	static final int MAX_LINEAR_NEEDLES = 16;
+
+	static int indexOf(int[] a, int x, int from, int to) {
+		for(int i = from; i < to; i++)
+			if(a[i] == x)
+				return i;
+		return -1;
+	}
+
+	static int lastIndexOf(int[] a, int x, int from, int to) {
+		for(int i = to-1; i >= from; i--)
+			if(a[i] == x)
+				return i;
+		return -1;
+	}
+
+	static int count(int[] a, int x, int from, int to) {
+		int c = 0;
+		for(int i = from; i < to; i++)
+			if(a[i] == x)
+				c++;
+		return c;
+	}
+
+	static int indexOf(long[] a, long x, int from, int to) {
+		for(int i = from; i < to; i++)
+			if(a[i] == x)
+				return i;
+		return -1;
+	}
+
+	static int lastIndexOf(long[] a, long x, int from, int to) {
+		for(int i = to-1; i >= from; i--)
+			if(a[i] == x)
+				return i;
+		return -1;
+	}
+
+	static int count(long[] a, long x, int from, int to) {
+		int c = 0;
+		for(int i = from; i < to; i++)
+			if(a[i] == x)
+				c++;
+		return c;
+	}
+
+	static int indexOf(float[] a, float x, int from, int to) {
+		for(int i = from; i < to; i++)
+			if(a[i] == x)
+				return i;
+		return -1;
+	}
+
+	static int lastIndexOf(float[] a, float x, int from, int to) {
+		for(int i = to-1; i >= from; i--)
+			if(a[i] == x)
+				return i;
+		return -1;
+	}
+
+	static int count(float[] a, float x, int from, int to) {
+		int c = 0;
+		for(int i = from; i < to; i++)
+			if(a[i] == x)
+				c++;
+		return c;
+	}
+
+	static int indexOf(double[] a, double x, int from, int to) {
+		for(int i = from; i < to; i++)
+			if(a[i] == x)
+				return i;
+		return -1;
+	}
+
+	static int lastIndexOf(double[] a, double x, int from, int to) {
+		for(int i = to-1; i >= from; i--)
+			if(a[i] == x)
+				return i;
+		return -1;
+	}
+
+	static int count(double[] a, double x, int from, int to) {
+		int c = 0;
+		for(int i = from; i < to; i++)
+			if(a[i] == x)
+				c++;
+		return c;
+	}
+
+	static int indexOf(short[] a, short x, int from, int to) {
+		for(int i = from; i < to; i++)
+			if(a[i] == x)
+				return i;
+		return -1;
+	}
+
+	static int lastIndexOf(short[] a, short x, int from, int to) {
+		for(int i = to-1; i >= from; i--)
+			if(a[i] == x)
+				return i;
+		return -1;
+	}
+
+	static int count(short[] a, short x, int from, int to) {
+		int c = 0;
+		for(int i = from; i < to; i++)
+			if(a[i] == x)
+				c++;
+		return c;
+	}
+
+	static int indexOf(char[] a, char x, int from, int to) {
+		for(int i = from; i < to; i++)
+			if(a[i] == x)
+				return i;
+		return -1;
+	}
+
+	static int lastIndexOf(char[] a, char x, int from, int to) {
+		for(int i = to-1; i >= from; i--)
+			if(a[i] == x)
+				return i;
+		return -1;
+	}
+
+	static int count(char[] a, char x, int from, int to) {
+		int c = 0;
+		for(int i = from; i < to; i++)
+			if(a[i] == x)
+				c++;
+		return c;
+	}
+
+	static int indexOfAny(int[] a, int[] needles, int from, int to) {
+		if(needles.length > MAX_LINEAR_NEEDLES) {
+			int[] sorted = Arrays.copyOf(needles, needles.length);
+			Arrays.sort(sorted);
+			for(int i = from; i < to; i++)
+				if(Arrays.binarySearch(sorted, a[i]) >= 0)
+					return i;
+			return -1;
+		}
+		for(int i = from; i < to; i++)
+			for(int n : needles)
+				if(a[i] == n)
+					return i;
+		return -1;
+	}
+
+	static int indexOfAny(long[] a, long[] needles, int from, int to) {
+		if(needles.length > MAX_LINEAR_NEEDLES) {
+			long[] sorted = Arrays.copyOf(needles, needles.length);
+			Arrays.sort(sorted);
+			for(int i = from; i < to; i++)
+				if(Arrays.binarySearch(sorted, a[i]) >= 0)
+					return i;
+			return -1;
+		}
+		for(int i = from; i < to; i++)
+			for(long n : needles)
+				if(a[i] == n)
+					return i;
+		return -1;
+	}
+
+	static int indexOfAny(char[] a, char[] needles, int from, int to) {
+		if(needles.length > MAX_LINEAR_NEEDLES) {
+			char[] sorted = Arrays.copyOf(needles, needles.length);
+			Arrays.sort(sorted);
+			for(int i = from; i < to; i++)
+				if(Arrays.binarySearch(sorted, a[i]) >= 0)
+					return i;
+			return -1;
+		}
+		for(int i = from; i < to; i++)
+			for(char n : needles)
+				if(a[i] == n)
+					return i;
+		return -1;
+	}
+
+}
@@ -1,88 +1,1467 @@
 package fr.wonder.commons.utils;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Comparator;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.PriorityQueue;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.ToIntFunction;
+import java.util.function.ToLongFunction;
+import java.util.stream.Collector;
 
 public class SortingUtils {
 	
 	public static class Comparators {
 		
 		public static final Comparator<String> ALPHABETICAL = (s1, s2) -> s1.compareTo(s2);
+		/**
+		 * Places super classes before their sub classes, beware that this is not a
+		 * total order (unrelated classes are never equal) so sorting with it may
+		 * fail, prefer {@link #inheritance(Class...)}.
+		 */
 		public static final Comparator<Class<?>> INHERITANCE = (c1, c2) -> c1 == c2 ? 0 : c1.isAssignableFrom(c2) ? -1 : 1;
 		
+		/**
+		 * Returns a comparator ordering the given classes by inheritance, super
+		 * classes being placed before their sub classes and unrelated classes
+		 * keeping the order in which they were given, see
+		 * {@link SortingUtils#inheritanceOrder(Class...)}. Classes that are not
+		 * part of {@code classes} are placed last.
+		 * <p>
+		 * Contrary to {@link #INHERITANCE} this is a valid total order, the ranks
+		 * of classes are computed once so comparisons do not use reflection.
+		 */
+		public static Comparator<Class<?>> inheritance(Class<?>... classes) {
+			ClassValue<Integer> ranks = exactRanks(inheritanceOrder(classes));
+			return (c1, c2) -> Integer.compare(ranks.get(c1), ranks.get(c2));
+		}
+		
 	}
 	
 	/**
-	 * Radix sort of base 16, will do 32/log2(16)=8 passes,
-	 * negative numbers are not handled, the elements of
-	 * the returned array will grow up to the maximum, then
-	 * the minimum value and grow again up to the maximum
-	 * value bellow 0
+	 * Returns a sorted copy of {@code array}, elements are treated as unsigned
+	 * integers so the elements of the returned array will grow up to the maximum,
+	 * then the minimum value and grow again up to the maximum value bellow 0.
+	 * 
+	 * @see #radixSortUnsigned(int[], int[])
 	 * @see #radixSort(int[])
 	 */
 	public static int[] radixSortUnsigned(int[] array) {
 		array = Arrays.copyOf(array, array.length);
-		int[] sorted = new int[array.length];
-		
-		for(int i = 0; i < 32; i += 4) {
-			byte[] counts = new byte[16];
-			
-			for(int x : array)
-				counts[(x>>i) & 0xf]++;
-			
-			for(int j = 1; j < 16; j++)
-				counts[j] += counts[j-1];
-			
-			for(int j = array.length; j > 0; j--)
-				sorted[counts[(array[j-1]>>i)&0xf]-- -1] = array[j-1];
-			
-			// swap arrays, we cannot just do array=sorted because
-			// sorted[...]=array[...] would messes things up (pointer science!)
-			int[] t = array;
-			array = sorted;
-			sorted = t;
-		}
-		
+		radixSortUnsigned(array, new int[array.length]);
 		return array;
 	}
 	
 	/**
-	 * Radix sort of base 16, will do 32/log2(16)=8 +1
-	 * passes to handle negative numbers
-	 * @see #radixSortUnsigned(int[])
+	 * Sorts {@code array} in place as if it contained unsigned integers using
+	 * {@code buffer} as scratch space, see {@link #radixSort(int[], int[])}.
+	 */
+	public static void radixSortUnsigned(int[] array, int[] buffer) {
+		checkBuffer(array.length, buffer.length);
+		radixSort32(array, buffer, array.length, 0);
+	}
+	
+	/**
+	 * Returns a sorted copy of {@code array}.
+	 * 
+	 * @see #radixSort(int[], int[])
 	 */
 	public static int[] radixSort(int[] array) {
-		array = radixSortUnsigned(array);
+		array = Arrays.copyOf(array, array.length);
+		radixSort(array, new int[array.length]);
+		return array;
+	}
+	
+	/**
+	 * Sorts {@code array} in place using {@code buffer} as scratch space, the
+	 * buffer must be at least as large as the array and its content is
+	 * overwritten. The same buffer may be reused for multiple sorts.
+	 * <p>
+	 * This is a LSD radix sort with 8 bits digits, the digit histograms of all
+	 * passes are computed at once before sorting and passes for which all
+	 * elements share the same digit are skipped, so at most 4 passes are made.
+	 * Negative numbers are handled by flipping the sign bit of the keys.
+	 */
+	public static void radixSort(int[] array, int[] buffer) {
+		checkBuffer(array.length, buffer.length);
+		radixSort32(array, buffer, array.length, Integer.MIN_VALUE);
+	}
+	
+	/** Returns a sorted copy of {@code array}, see {@link #radixSort(short[], short[])} */
+	public static short[] radixSort(short[] array) {
+		array = Arrays.copyOf(array, array.length);
+		radixSort(array, new short[array.length]);
+		return array;
+	}
+	
+	/** Same as {@link #radixSort(int[], int[])} for shorts, at most 2 passes are made */
+	public static void radixSort(short[] array, short[] buffer) {
+		checkBuffer(array.length, buffer.length);
+		int length = array.length;
+		if(length < 2)
+			return;
+		int[][] counts = new int[2][256];
+		for(int i = 0; i < length; i++) {
+			int k = array[i] ^ 0x8000;
+			counts[0][k & 0xff]++;
+			counts[1][(k >>> 8) & 0xff]++;
+		}
+		short[] src = array, dst = buffer;
+		for(int p = 0; p < 2; p++) {
+			int shift = p * 8;
+			int[] c = counts[p];
+			if(c[((src[0] ^ 0x8000) >>> shift) & 0xff] == length)
+				continue;
+			prefixSum(c);
+			for(int i = 0; i < length; i++) {
+				short x = src[i];
+				dst[c[((x ^ 0x8000) >>> shift) & 0xff]++] = x;
+			}
+			short[] t = src; src = dst; dst = t;
+		}
+		if(src != array)
+			System.arraycopy(src, 0, array, 0, length);
+	}
+	
+	/** Returns a sorted copy of {@code array}, see {@link #radixSort(long[], long[])} */
+	public static long[] radixSort(long[] array) {
+		array = Arrays.copyOf(array, array.length);
+		radixSort(array, new long[array.length]);
+		return array;
+	}
+	
+	/**
+	 * Same as {@link #radixSort(int[], int[])} for longs, 11 bits digits are
+	 * used so at most 6 passes are made.
+	 */
+	public static void radixSort(long[] array, long[] buffer) {
+		checkBuffer(array.length, buffer.length);
+		radixSort64(array, buffer, array.length, Long.MIN_VALUE, 0);
+	}
+	
+	/** Same as {@link #radixSortUnsigned(int[], int[])} for longs */
+	public static void radixSortUnsigned(long[] array, long[] buffer) {
+		checkBuffer(array.length, buffer.length);
+		radixSort64(array, buffer, array.length, 0, 0);
+	}
+	
+	/** Returns a sorted copy of {@code array}, see {@link #radixSort(float[], float[])} */
+	public static float[] radixSort(float[] array) {
+		array = Arrays.copyOf(array, array.length);
+		radixSort(array, new float[array.length]);
+		return array;
+	}
+	
+	/**
+	 * Same as {@link #radixSort(int[], int[])} for floats. The resulting order
+	 * is the same as {@link Arrays#sort(float[])}'s: {@code -0.0f} is placed
+	 * before {@code 0.0f} and NaN values are placed last.
+	 */
+	public static void radixSort(float[] array, float[] buffer) {
+		checkBuffer(array.length, buffer.length);
+		int length = array.length;
+		if(length < 2)
+			return;
+		int[][] counts = new int[4][256];
+		for(int i = 0; i < length; i++) {
+			int k = floatKey(array[i]);
+			counts[0][k & 0xff]++;
+			counts[1][(k >>> 8) & 0xff]++;
+			counts[2][(k >>> 16) & 0xff]++;
+			counts[3][k >>> 24]++;
+		}
+		float[] src = array, dst = buffer;
+		for(int p = 0; p < 4; p++) {
+			int shift = p * 8;
+			int[] c = counts[p];
+			if(c[(floatKey(src[0]) >>> shift) & 0xff] == length)
+				continue;
+			prefixSum(c);
+			for(int i = 0; i < length; i++) {
+				float x = src[i];
+				dst[c[(floatKey(x) >>> shift) & 0xff]++] = x;
+			}
+			float[] t = src; src = dst; dst = t;
+		}
+		if(src != array)
+			System.arraycopy(src, 0, array, 0, length);
+	}
+	
+	/** Returns a sorted copy of {@code array}, see {@link #radixSort(double[], double[])} */
+	public static double[] radixSort(double[] array) {
+		array = Arrays.copyOf(array, array.length);
+		radixSort(array, new double[array.length]);
+		return array;
+	}
+	
+	/**
+	 * Same as {@link #radixSort(long[], long[])} for doubles. The resulting
+	 * order is the same as {@link Arrays#sort(double[])}'s: {@code -0.0d} is
+	 * placed before {@code 0.0d} and NaN values are placed last.
+	 */
+	public static void radixSort(double[] array, double[] buffer) {
+		checkBuffer(array.length, buffer.length);
+		int length = array.length;
+		if(length < 2)
+			return;
+		int[][] counts = new int[LONG_PASSES][LONG_DIGITS];
+		for(int i = 0; i < length; i++) {
+			long k = doubleKey(array[i]);
+			for(int p = 0; p < LONG_PASSES; p++)
+				counts[p][(int) (k >>> (p * LONG_DIGIT_BITS)) & LONG_DIGIT_MASK]++;
+		}
+		double[] src = array, dst = buffer;
+		for(int p = 0; p < LONG_PASSES; p++) {
+			int shift = p * LONG_DIGIT_BITS;
+			int[] c = counts[p];
+			if(c[(int) (doubleKey(src[0]) >>> shift) & LONG_DIGIT_MASK] == length)
+				continue;
+			prefixSum(c);
+			for(int i = 0; i < length; i++) {
+				double x = src[i];
+				dst[c[(int) (doubleKey(x) >>> shift) & LONG_DIGIT_MASK]++] = x;
+			}
+			double[] t = src; src = dst; dst = t;
+		}
+		if(src != array)
+			System.arraycopy(src, 0, array, 0, length);
+	}
+	
+	/**
+	 * Returns the permutation that sorts {@code keys}, that is the array
+	 * {@code p} such that {@code keys[p[0]] <= keys[p[1]] <= ...}. Equal keys
+	 * keep their relative order.
+	 * <p>
+	 * The permutation can be applied to any array of the same length using
+	 * {@link #permute(Object[], int[])}, which allows multiple parallel arrays
+	 * to be reordered together.
+	 * <p>
+	 * Keys and indices are packed in longs that are radix sorted on the key
+	 * bits only.
+	 */
+	public static int[] argsort(int[] keys) {
+		int length = keys.length;
+		long[] packed = new long[length];
+		for(int i = 0; i < length; i++)
+			packed[i] = (long) (keys[i] ^ Integer.MIN_VALUE) << 32 | i;
+		radixSort64(packed, new long[length], length, 0, 32);
+		int[] permutation = new int[length];
+		for(int i = 0; i < length; i++)
+			permutation[i] = (int) packed[i];
+		return permutation;
+	}
+	
+	/** Same as {@link #argsort(int[])} for long keys */
+	public static int[] argsort(long[] keys) {
+		int length = keys.length;
+		int[] permutation = new int[length];
+		for(int i = 0; i < length; i++)
+			permutation[i] = i;
+		if(length < 2)
+			return permutation;
+		long[] k = new long[length];
+		for(int i = 0; i < length; i++)
+			k[i] = keys[i] ^ Long.MIN_VALUE;
+		long[] kbuf = new long[length];
+		int[] pbuf = new int[length];
+		int[][] counts = new int[LONG_PASSES][LONG_DIGITS];
+		for(long x : k)
+			for(int p = 0; p < LONG_PASSES; p++)
+				counts[p][(int) (x >>> (p * LONG_DIGIT_BITS)) & LONG_DIGIT_MASK]++;
+		for(int p = 0; p < LONG_PASSES; p++) {
+			int shift = p * LONG_DIGIT_BITS;
+			int[] c = counts[p];
+			if(c[(int) (k[0] >>> shift) & LONG_DIGIT_MASK] == length)
+				continue;
+			prefixSum(c);
+			for(int i = 0; i < length; i++) {
+				int pos = c[(int) (k[i] >>> shift) & LONG_DIGIT_MASK]++;
+				kbuf[pos] = k[i];
+				pbuf[pos] = permutation[i];
+			}
+			long[] tk = k; k = kbuf; kbuf = tk;
+			int[] tp = permutation; permutation = pbuf; pbuf = tp;
+		}
+		return permutation;
+	}
+	
+	/**
+	 * Returns the permutation that sorts {@code array} by the keys extracted
+	 * using {@code key}, keys are extracted exactly once per element.
+	 * 
+	 * @see #argsort(int[])
+	 */
+	public static <T> int[] argsortByIntKey(T[] array, ToIntFunction<? super T> key) {
+		int[] keys = new int[array.length];
+		for(int i = 0; i < array.length; i++)
+			keys[i] = key.applyAsInt(array[i]);
+		return argsort(keys);
+	}
+	
+	/** see {@link #argsortByIntKey(Object[], ToIntFunction)} */
+	public static <T> int[] argsortByLongKey(T[] array, ToLongFunction<? super T> key) {
+		long[] keys = new long[array.length];
+		for(int i = 0; i < array.length; i++)
+			keys[i] = key.applyAsLong(array[i]);
+		return argsort(keys);
+	}
+	
+	/**
+	 * Sorts {@code array} in place by the int keys extracted using {@code key}.
+	 * Keys are extracted once per element and radix sorted, which is much
+	 * faster than sorting with a {@code Comparator} on large arrays. The sort is
+	 * stable.
+	 */
+	public static <T> void sortByIntKey(T[] array, ToIntFunction<? super T> key) {
+		permuteInPlace(array, argsortByIntKey(array, key));
+	}
+	
+	/** Same as {@link #sortByIntKey(Object[], ToIntFunction)} with long keys */
+	public static <T> void sortByLongKey(T[] array, ToLongFunction<? super T> key) {
+		permuteInPlace(array, argsortByLongKey(array, key));
+	}
+	
+	private static <T> void permuteInPlace(T[] array, int[] permutation) {
+		T[] copy = Arrays.copyOf(array, array.length);
+		for(int i = 0; i < array.length; i++)
+			array[i] = copy[permutation[i]];
+	}
+	
+	/**
+	 * Returns a new array containing the elements of {@code array} in the order
+	 * given by {@code permutation}, that is {@code result[i] = array[permutation[i]]}.
+	 * 
+	 * @see #argsort(int[])
+	 */
+	public static <T> T[] permute(T[] array, int[] permutation) {
+		T[] result = Arrays.copyOf(array, permutation.length);
+		for(int i = 0; i < permutation.length; i++)
+			result[i] = array[permutation[i]];
+		return result;
+	}
+	
+	/** see {@link #permute(Object[], int[])} */
+	public static int[] permute(int[] array, int[] permutation) {
+		int[] result = new int[permutation.length];
+		for(int i = 0; i < permutation.length; i++)
+			result[i] = array[permutation[i]];
+		return result;
+	}
+	
+	/** see {@link #permute(Object[], int[])} */
+	public static long[] permute(long[] array, int[] permutation) {
+		long[] result = new long[permutation.length];
+		for(int i = 0; i < permutation.length; i++)
+			result[i] = array[permutation[i]];
+		return result;
+	}
+	
+	/** see {@link #permute(Object[], int[])} */
+	public static double[] permute(double[] array, int[] permutation) {
+		double[] result = new double[permutation.length];
+		for(int i = 0; i < permutation.length; i++)
+			result[i] = array[permutation[i]];
+		return result;
+	}
+	
+	/**
+	 * Minimum amount of elements sorted by a single task of the parallel sorts,
+	 * arrays smaller than this are sorted sequentially.
+	 */
+	private static final int PARALLEL_SORT_THRESHOLD = 1 << 16;
+	
+	/** Returns a sorted copy of {@code array}, see {@link #parallelRadixSort(int[], int[])} */
+	public static int[] parallelRadixSort(int[] array) {
+		array = Arrays.copyOf(array, array.length);
+		parallelRadixSort(array, new int[array.length]);
+		return array;
+	}
+	
+	/**
+	 * Parallel version of {@link #radixSort(int[], int[])}.
+	 * <p>
+	 * The array is split in chunks, for each pass the digit histograms of all
+	 * chunks are computed concurrently, a prefix sum over (digit, chunk) gives
+	 * every chunk the positions it writes to and the chunks are then scattered
+	 * concurrently. The sort is run on the common fork/join pool.
+	 */
+	public static void parallelRadixSort(int[] array, int[] buffer) {
+		checkBuffer(array.length, buffer.length);
+		int chunkSize = ParallelTasks.chunkSize(array.length, PARALLEL_SORT_THRESHOLD);
+		int chunkCount = ParallelTasks.chunkCount(array.length, chunkSize);
+		if(chunkCount <= 1) {
+			radixSort32(array, buffer, array.length, Integer.MIN_VALUE);
+			return;
+		}
+		int length = array.length;
+		int flip = Integer.MIN_VALUE;
+		int[][] counts = new int[chunkCount][256];
+		int[] src = array, dst = buffer;
+		for(int p = 0; p < 4; p++) {
+			int shift = p * 8;
+			int[] from = src, to = dst;
+			ParallelTasks.forRange(0, chunkCount, 1, (cstart, cend) -> {
+				for(int c = cstart; c < cend; c++) {
+					int[] h = counts[c];
+					Arrays.fill(h, 0);
+					int end = Math.min(length, (c+1)*chunkSize);
+					for(int i = c*chunkSize; i < end; i++)
+						h[((from[i] ^ flip) >>> shift) & 0xff]++;
+				}
+			});
+			if(!chunkedPrefixSum(counts, ((src[0] ^ flip) >>> shift) & 0xff, length))
+				continue;
+			ParallelTasks.forRange(0, chunkCount, 1, (cstart, cend) -> {
+				for(int c = cstart; c < cend; c++) {
+					int[] h = counts[c];
+					int end = Math.min(length, (c+1)*chunkSize);
+					for(int i = c*chunkSize; i < end; i++) {
+						int x = from[i];
+						to[h[((x ^ flip) >>> shift) & 0xff]++] = x;
+					}
+				}
+			});
+			src = to;
+			dst = from;
+		}
+		if(src != array)
+			System.arraycopy(src, 0, array, 0, length);
+	}
+	
+	/** Returns a sorted copy of {@code array}, see {@link #parallelRadixSort(long[], long[])} */
+	public static long[] parallelRadixSort(long[] array) {
+		array = Arrays.copyOf(array, array.length);
+		parallelRadixSort(array, new long[array.length]);
+		return array;
+	}
+	
+	/** Parallel version of {@link #radixSort(long[], long[])}, see {@link #parallelRadixSort(int[], int[])} */
+	public static void parallelRadixSort(long[] array, long[] buffer) {
+		checkBuffer(array.length, buffer.length);
+		int chunkSize = ParallelTasks.chunkSize(array.length, PARALLEL_SORT_THRESHOLD);
+		int chunkCount = ParallelTasks.chunkCount(array.length, chunkSize);
+		if(chunkCount <= 1) {
+			radixSort64(array, buffer, array.length, Long.MIN_VALUE, 0);
+			return;
+		}
+		int length = array.length;
+		long flip = Long.MIN_VALUE;
+		int[][] counts = new int[chunkCount][LONG_DIGITS];
+		long[] src = array, dst = buffer;
+		for(int p = 0; p < LONG_PASSES; p++) {
+			int shift = p * LONG_DIGIT_BITS;
+			long[] from = src, to = dst;
+			ParallelTasks.forRange(0, chunkCount, 1, (cstart, cend) -> {
+				for(int c = cstart; c < cend; c++) {
+					int[] h = counts[c];
+					Arrays.fill(h, 0);
+					int end = Math.min(length, (c+1)*chunkSize);
+					for(int i = c*chunkSize; i < end; i++)
+						h[(int) ((from[i] ^ flip) >>> shift) & LONG_DIGIT_MASK]++;
+				}
+			});
+			if(!chunkedPrefixSum(counts, (int) ((src[0] ^ flip) >>> shift) & LONG_DIGIT_MASK, length))
+				continue;
+			ParallelTasks.forRange(0, chunkCount, 1, (cstart, cend) -> {
+				for(int c = cstart; c < cend; c++) {
+					int[] h = counts[c];
+					int end = Math.min(length, (c+1)*chunkSize);
+					for(int i = c*chunkSize; i < end; i++) {
+						long x = from[i];
+						to[h[(int) ((x ^ flip) >>> shift) & LONG_DIGIT_MASK]++] = x;
+					}
+				}
+			});
+			src = to;
+			dst = from;
+		}
+		if(src != array)
+			System.arraycopy(src, 0, array, 0, length);
+	}
+	
+	/**
+	 * Replaces the per-chunk histograms by the positions each chunk writes its
+	 * first element of each digit to. Returns false without modifying the
+	 * histograms if all elements share the digit {@code firstDigit}, in which
+	 * case the pass can be skipped.
+	 */
+	private static boolean chunkedPrefixSum(int[][] counts, int firstDigit, int length) {
+		int firstDigitCount = 0;
+		for(int[] h : counts)
+			firstDigitCount += h[firstDigit];
+		if(firstDigitCount == length)
+			return false;
+		int sum = 0;
+		for(int d = 0; d < counts[0].length; d++) {
+			for(int[] h : counts) {
+				int c = h[d];
+				h[d] = sum;
+				sum += c;
+			}
+		}
+		return true;
+	}
+	
+	/**
+	 * Sorts {@code array} using a parallel merge sort, see
+	 * {@link #parallelSort(Object[], Comparator, Object[])}.
+	 */
+	public static <T> void parallelSort(T[] array, Comparator<? super T> comparator) {
+		parallelSort(array, comparator, new Object[array.length]);
+	}
+	
+	/**
+	 * Sorts {@code array} using a parallel merge sort, like
+	 * {@link Arrays#parallelSort(Object[], Comparator)} the sort is stable and
+	 * runs on the common fork/join pool, but the scratch space is given by the
+	 * caller so that it can be reused between sorts.
+	 * <p>
+	 * Ranges are sorted sequentially with {@link Arrays#sort(Object[], int, int, Comparator)}
+	 * and merged concurrently, large merges are themselves split by binary
+	 * searching the split point of the second run.
+	 * 
+	 * @param array      the array to sort
+	 * @param comparator the comparator used to order elements
+	 * @param buffer     an array at least as large as {@code array}, its
+	 *                   content is overwritten
+	 */
+	public static <T> void parallelSort(T[] array, Comparator<? super T> comparator, Object[] buffer) {
+		checkBuffer(array.length, buffer.length);
+		int chunkSize = ParallelTasks.chunkSize(array.length, PARALLEL_SORT_THRESHOLD / 8);
+		if(array.length <= chunkSize) {
+			Arrays.sort(array, comparator);
+			return;
+		}
+		ParallelTasks.invoke(new MergeSortTask<>(array, buffer, 0, array.length, chunkSize, comparator));
+	}
+	
+	private static class MergeSortTask<T> extends RecursiveAction {
 		
-		byte[] counts = new byte[16];
+		private static final long serialVersionUID = 1L;
 		
-		for(int x : array)
-			counts[~x>>>31]++;
+		private final T[] array;
+		private final Object[] buffer;
+		private final int from, to, threshold;
+		private final Comparator<? super T> comparator;
 		
-		for(int j = 1; j < counts.length; j++)
-			counts[j] += counts[j-1];
+		MergeSortTask(T[] array, Object[] buffer, int from, int to, int threshold, Comparator<? super T> comparator) {
+			this.array = array;
+			this.buffer = buffer;
+			this.from = from;
+			this.to = to;
+			this.threshold = threshold;
+			this.comparator = comparator;
+		}
 		
-		int[] sorted = new int[array.length];
+		@Override
+		protected void compute() {
+			if(to - from <= threshold) {
+				Arrays.sort(array, from, to, comparator);
+				return;
+			}
+			int mid = (from + to) >>> 1;
+			invokeAll(
+					new MergeSortTask<>(array, buffer, from, mid, threshold, comparator),
+					new MergeSortTask<>(array, buffer, mid, to, threshold, comparator));
+			if(comparator.compare(array[mid-1], array[mid]) <= 0)
+				return; // already in order
+			System.arraycopy(array, from, buffer, from, to - from);
+			new MergeTask<>(buffer, array, from, mid, mid, to, from, threshold, comparator).compute();
+		}
+	}
+	
+	private static class MergeTask<T> extends RecursiveAction {
+		
+		private static final long serialVersionUID = 1L;
 		
-		for(int j = array.length; j > 0; j--)
-			sorted[counts[~array[j-1]>>>31]-- -1] = array[j-1];
+		private final Object[] src;
+		private final T[] dst;
+		private final int lo1, hi1, lo2, hi2, out, threshold;
+		private final Comparator<? super T> comparator;
 		
-		return sorted;
+		MergeTask(Object[] src, T[] dst, int lo1, int hi1, int lo2, int hi2, int out,
+				int threshold, Comparator<? super T> comparator) {
+			this.src = src;
+			this.dst = dst;
+			this.lo1 = lo1;
+			this.hi1 = hi1;
+			this.lo2 = lo2;
+			this.hi2 = hi2;
+			this.out = out;
+			this.threshold = threshold;
+			this.comparator = comparator;
+		}
+		
+		@SuppressWarnings("unchecked")
+		private T at(int i) {
+			return (T) src[i];
+		}
+		
+		@Override
+		protected void compute() {
+			int n1 = hi1 - lo1, n2 = hi2 - lo2;
+			if(n1 + n2 <= threshold) {
+				merge();
+				return;
+			}
+			// split the largest run in half and find the matching split point
+			// in the other, elements of the first run go first on equality
+			int m1, m2;
+			if(n1 >= n2) {
+				m1 = (lo1 + hi1) >>> 1;
+				T key = at(m1);
+				int l = lo2, h = hi2;
+				while(l < h) {
+					int m = (l + h) >>> 1;
+					if(comparator.compare(at(m), key) < 0) l = m + 1; else h = m;
+				}
+				m2 = l;
+			} else {
+				m2 = (lo2 + hi2) >>> 1;
+				T key = at(m2);
+				int l = lo1, h = hi1;
+				while(l < h) {
+					int m = (l + h) >>> 1;
+					if(comparator.compare(at(m), key) <= 0) l = m + 1; else h = m;
+				}
+				m1 = l;
+			}
+			int outMid = out + (m1 - lo1) + (m2 - lo2);
+			invokeAll(
+					new MergeTask<>(src, dst, lo1, m1, lo2, m2, out, threshold, comparator),
+					new MergeTask<>(src, dst, m1, hi1, m2, hi2, outMid, threshold, comparator));
+		}
+		
+		private void merge() {
+			int i = lo1, j = lo2, k = out;
+			while(i < hi1 && j < hi2) {
+				if(comparator.compare(at(i), at(j)) <= 0)
+					dst[k++] = at(i++);
+				else
+					dst[k++] = at(j++);
+			}
+			System.arraycopy(src, i, dst, k, hi1 - i);
+			System.arraycopy(src, j, dst, k + hi1 - i, hi2 - j);
+		}
 	}
 	
+	private static final int LONG_DIGIT_BITS = 11;
+	private static final int LONG_DIGITS = 1 << LONG_DIGIT_BITS;
+	private static final int LONG_DIGIT_MASK = LONG_DIGITS - 1;
+	private static final int LONG_PASSES = (64 + LONG_DIGIT_BITS - 1) / LONG_DIGIT_BITS;
+	
+	/**
+	 * Sorts the first {@code length} elements of {@code array} by their keys
+	 * {@code x^flip} (compared as unsigned integers).
+	 */
+	static void radixSort32(int[] array, int[] buffer, int length, int flip) {
+		if(length < 2)
+			return;
+		int[][] counts = new int[4][256];
+		for(int i = 0; i < length; i++) {
+			int k = array[i] ^ flip;
+			counts[0][k & 0xff]++;
+			counts[1][(k >>> 8) & 0xff]++;
+			counts[2][(k >>> 16) & 0xff]++;
+			counts[3][k >>> 24]++;
+		}
+		int[] src = array, dst = buffer;
+		for(int p = 0; p < 4; p++) {
+			int shift = p * 8;
+			int[] c = counts[p];
+			if(c[((src[0] ^ flip) >>> shift) & 0xff] == length)
+				continue;
+			prefixSum(c);
+			for(int i = 0; i < length; i++) {
+				int x = src[i];
+				dst[c[((x ^ flip) >>> shift) & 0xff]++] = x;
+			}
+			int[] t = src; src = dst; dst = t;
+		}
+		if(src != array)
+			System.arraycopy(src, 0, array, 0, length);
+	}
+	
+	/**
+	 * Sorts the first {@code length} elements of {@code array} by their keys
+	 * {@code x^flip} (compared as unsigned integers), only the bits starting
+	 * from {@code fromBit} are compared, the sort being stable elements with
+	 * the same upper bits keep their relative order.
+	 */
+	static void radixSort64(long[] array, long[] buffer, int length, long flip, int fromBit) {
+		if(length < 2)
+			return;
+		int passes = (64 - fromBit + LONG_DIGIT_BITS - 1) / LONG_DIGIT_BITS;
+		int[][] counts = new int[passes][LONG_DIGITS];
+		for(int i = 0; i < length; i++) {
+			long k = (array[i] ^ flip) >>> fromBit;
+			for(int p = 0; p < passes; p++)
+				counts[p][(int) (k >>> (p * LONG_DIGIT_BITS)) & LONG_DIGIT_MASK]++;
+		}
+		long[] src = array, dst = buffer;
+		for(int p = 0; p < passes; p++) {
+			int shift = fromBit + p * LONG_DIGIT_BITS;
+			int[] c = counts[p];
+			if(c[(int) ((src[0] ^ flip) >>> shift) & LONG_DIGIT_MASK] == length)
+				continue;
+			prefixSum(c);
+			for(int i = 0; i < length; i++) {
+				long x = src[i];
+				dst[c[(int) ((x ^ flip) >>> shift) & LONG_DIGIT_MASK]++] = x;
+			}
+			long[] t = src; src = dst; dst = t;
+		}
+		if(src != array)
+			System.arraycopy(src, 0, array, 0, length);
+	}
+	
+	/** Replaces the counts by their exclusive prefix sum */
+	static void prefixSum(int[] counts) {
+		int sum = 0;
+		for(int d = 0; d < counts.length; d++) {
+			int c = counts[d];
+			counts[d] = sum;
+			sum += c;
+		}
+	}
+	
+	/** Returns an int that can be compared as an unsigned int to order floats */
+	static int floatKey(float f) {
+		int bits = Float.floatToIntBits(f);
+		return bits ^ ((bits >> 31) | Integer.MIN_VALUE);
+	}
+	
+	/** Returns a long that can be compared as an unsigned long to order doubles */
+	static long doubleKey(double d) {
+		long bits = Double.doubleToLongBits(d);
+		return bits ^ ((bits >> 63) | Long.MIN_VALUE);
+	}
+	
+	private static void checkBuffer(int arrayLength, int bufferLength) {
+		if(bufferLength < arrayLength)
+			throw new IllegalArgumentException("Buffer too small, got " + bufferLength + " elements, need " + arrayLength);
+	}
+	
+	private static final int STRING_INSERTION_THRESHOLD = 16;
+	/** number of chars packed in a string sort key */
+	private static final int STRING_KEY_CHARS = 3;
+	private static final int STRING_KEY_CHAR_BITS = 21;
+	
+	/**
+	 * Sorts {@code array} in the natural order of strings (the one of
+	 * {@link String#compareTo(String)} and {@link Comparators#ALPHABETICAL}).
+	 * <p>
+	 * This is a multikey quicksort: strings are partitioned on their characters
+	 * at the depth of the current range instead of being compared from the
+	 * start, common prefixes are therefore only read once, which is much faster
+	 * than a comparison sort on large sets of strings sharing long prefixes
+	 * (identifiers, paths, urls...). Characters are read 3 at a time and packed
+	 * into an array of long keys so that partitioning does not have to access
+	 * the strings themselves. The sort is not stable, which makes no difference
+	 * for strings.
+	 * 
+	 * @throws NullPointerException if {@code array} contains null
+	 */
+	public static void sortStrings(String[] array) {
+		sortStrings(array, 0, array.length);
+	}
+	
+	/** Same as {@link #sortStrings(String[])} on the range [from,to) */
+	public static void sortStrings(String[] array, int from, int to) {
+		if(from < 0 || to > array.length || from > to)
+			throw new IndexOutOfBoundsException("Range [" + from + "," + to + ") out of bounds for length " + array.length);
+		long[] keys = new long[array.length];
+		for(int i = from; i < to; i++)
+			keys[i] = stringKey(array[i], 0);
+		multikeySort(array, keys, from, to, 0);
+	}
+	
+	/** Sorts {@code list} in place, see {@link #sortStrings(String[])} */
+	public static void sortStrings(List<String> list) {
+		String[] array = list.toArray(new String[list.size()]);
+		sortStrings(array);
+		ListIterator<String> it = list.listIterator();
+		for(String s : array) {
+			it.next();
+			it.set(s);
+		}
+	}
+	
+	/**
+	 * Packs the chars {@code [depth,depth+3)} of {@code s} in a positive long,
+	 * each char is stored as {@code c+1} so that 0 marks the end of the string
+	 * and shorter strings come first.
+	 */
+	private static long stringKey(String s, int depth) {
+		long key = 0;
+		int length = s.length();
+		for(int i = 0; i < STRING_KEY_CHARS; i++) {
+			key <<= STRING_KEY_CHAR_BITS;
+			if(depth + i < length)
+				key |= s.charAt(depth + i) + 1;
+		}
+		return key;
+	}
+	
+	/**
+	 * Sorts [from,to), all strings of the range share their first {@code depth}
+	 * chars and {@code keys} hold their chars starting from {@code depth}.
+	 */
+	private static void multikeySort(String[] array, long[] keys, int from, int to, int depth) {
+		while(to - from > STRING_INSERTION_THRESHOLD) {
+			int mid = (from + to) >>> 1;
+			long a = keys[from], b = keys[mid], c = keys[to-1];
+			long pivot = a < b ?
+					(b < c ? b : a < c ? c : a) :
+					(a < c ? a : b < c ? c : b);
+			// [from,lt) < pivot, [lt,gt) == pivot, [gt,to) > pivot
+			int lt = from, i = from, gt = to;
+			while(i < gt) {
+				long k = keys[i];
+				if(k < pivot)
+					swap(array, keys, i++, lt++);
+				else if(k > pivot)
+					swap(array, keys, i, --gt);
+				else
+					i++;
+			}
+			// if the strings of the middle range end within the key they are all equal
+			boolean middleDone = (pivot & ((1L << STRING_KEY_CHAR_BITS) - 1)) == 0;
+			int lowSize = lt - from, midSize = middleDone ? 0 : gt - lt, highSize = to - gt;
+			// recurse on the two smallest parts and loop on the largest to bound the stack depth
+			if(!middleDone && midSize >= lowSize && midSize >= highSize) {
+				multikeySort(array, keys, from, lt, depth);
+				multikeySort(array, keys, gt, to, depth);
+				depth += STRING_KEY_CHARS;
+				for(int j = lt; j < gt; j++)
+					keys[j] = stringKey(array[j], depth);
+				from = lt;
+				to = gt;
+			} else {
+				if(!middleDone) {
+					for(int j = lt; j < gt; j++)
+						keys[j] = stringKey(array[j], depth + STRING_KEY_CHARS);
+					multikeySort(array, keys, lt, gt, depth + STRING_KEY_CHARS);
+				}
+				if(lowSize >= highSize) {
+					multikeySort(array, keys, gt, to, depth);
+					to = lt;
+				} else {
+					multikeySort(array, keys, from, lt, depth);
+					from = gt;
+				}
+			}
+		}
+		for(int i = from + 1; i < to; i++) {
+			String s = array[i];
+			long k = keys[i];
+			int j = i - 1;
+			for(; j >= from && (keys[j] > k || keys[j] == k && compareFrom(array[j], s, depth) > 0); j--) {
+				array[j+1] = array[j];
+				keys[j+1] = keys[j];
+			}
+			array[j+1] = s;
+			keys[j+1] = k;
+		}
+	}
+	
+	private static void swap(String[] array, long[] keys, int i, int j) {
+		String s = array[i];
+		array[i] = array[j];
+		array[j] = s;
+		long k = keys[i];
+		keys[i] = keys[j];
+		keys[j] = k;
+	}
+	
+	/** Compares two strings known to share their first {@code depth} chars */
+	private static int compareFrom(String s1, String s2, int depth) {
+		int l1 = s1.length(), l2 = s2.length();
+		int length = Math.min(l1, l2);
+		for(int i = depth; i < length; i++) {
+			char c1 = s1.charAt(i), c2 = s2.charAt(i);
+			if(c1 != c2)
+				return c1 - c2;
+		}
+		return l1 - l2;
+	}
+	
+	private static final int SELECT_INSERTION_THRESHOLD = 16;
+	
+	/**
+	 * Returns the {@code k}-th smallest element of {@code array} (starting from 0)
+	 * in linear time on average.
+	 * <p>
+	 * The array is partially reordered: after the call {@code array[k]} holds
+	 * the returned value, the elements before it are smaller or equal and the
+	 * elements after it are greater or equal. This is an introselect, a three-way
+	 * quickselect that falls back to sorting the remaining range if too many
+	 * bad pivots are encountered, bounding the worst case to O(n log n).
+	 * <p>
+	 * To find the median of an array use {@code select(array, array.length/2)}.
+	 */
+	public static int select(int[] array, int k) {
+		return select(array, 0, array.length, k);
+	}
+	
+	/** Same as {@link #select(int[], int)} on the range [from,to) */
+	public static int select(int[] array, int from, int to, int k) {
+		new IntSelector(array).select(from, to, k);
+		return array[k];
+	}
+	
+	/**
+	 * Partially sorts {@code array} so that the range [from,to) contains the
+	 * elements it would contain if the whole array was sorted, in order. The
+	 * other elements are left in an unspecified order (smaller ones before
+	 * {@code from}, greater ones after {@code to}).
+	 * <p>
+	 * This costs O(n + (to-from)log(to-from)) on average instead of O(n log n)
+	 * for a full sort.
+	 */
+	public static void partialSort(int[] array, int from, int to) {
+		if(from < 0 || to > array.length || from > to)
+			throw new IndexOutOfBoundsException("Range [" + from + "," + to + ") out of bounds for length " + array.length);
+		if(from == to)
+			return;
+		select(array, 0, array.length, from);
+		select(array, from, array.length, to-1);
+		Arrays.sort(array, from, to);
+	}
+	
+	/** see {@link #select(int[], int)} */
+	public static long select(long[] array, int k) {
+		return select(array, 0, array.length, k);
+	}
+	
+	/** see {@link #select(int[], int)} */
+	public static long select(long[] array, int from, int to, int k) {
+		new LongSelector(array).select(from, to, k);
+		return array[k];
+	}
+	
+	/** see {@link #partialSort(int[], int, int)} */
+	public static void partialSort(long[] array, int from, int to) {
+		if(from < 0 || to > array.length || from > to)
+			throw new IndexOutOfBoundsException("Range [" + from + "," + to + ") out of bounds for length " + array.length);
+		if(from == to)
+			return;
+		select(array, 0, array.length, from);
+		select(array, from, array.length, to-1);
+		Arrays.sort(array, from, to);
+	}
+	
+	/** see {@link #select(int[], int)} */
+	public static double select(double[] array, int k) {
+		return select(array, 0, array.length, k);
+	}
+	
+	/** see {@link #select(int[], int)} */
+	public static double select(double[] array, int from, int to, int k) {
+		new DoubleSelector(array).select(from, to, k);
+		return array[k];
+	}
+	
+	/** see {@link #partialSort(int[], int, int)} */
+	public static void partialSort(double[] array, int from, int to) {
+		if(from < 0 || to > array.length || from > to)
+			throw new IndexOutOfBoundsException("Range [" + from + "," + to + ") out of bounds for length " + array.length);
+		if(from == to)
+			return;
+		select(array, 0, array.length, from);
+		select(array, from, array.length, to-1);
+		Arrays.sort(array, from, to);
+	}
+	
+	/** see {@link #select(int[], int)} */
+	public static <T> T select(T[] array, int k, Comparator<? super T> comparator) {
+		return select(array, 0, array.length, k, comparator);
+	}
+	
+	/** see {@link #select(int[], int)} */
+	public static <T> T select(T[] array, int from, int to, int k, Comparator<? super T> comparator) {
+		new ObjectSelector<>(array, comparator).select(from, to, k);
+		return array[k];
+	}
+	
+	/** see {@link #partialSort(int[], int, int)} */
+	public static <T> void partialSort(T[] array, int from, int to, Comparator<? super T> comparator) {
+		if(from < 0 || to > array.length || from > to)
+			throw new IndexOutOfBoundsException("Range [" + from + "," + to + ") out of bounds for length " + array.length);
+		if(from == to)
+			return;
+		select(array, 0, array.length, from, comparator);
+		select(array, from, array.length, to-1, comparator);
+		Arrays.sort(array, from, to, comparator);
+	}
+	
+	/**
+	 * The introselect of the {@code select} methods, written once over an
+	 * array accessed by indices. Subclasses compare, swap and sort elements of
+	 * their array, and implement the partition loop so that it does not go
+	 * through virtual calls for each element.
+	 */
+	private static abstract class Selector {
+		
+		/** Compares the elements at indices {@code i} and {@code j} */
+		abstract int compare(int i, int j);
+		
+		abstract void swap(int i, int j);
+		
+		/** Sorts the range [from,to) */
+		abstract void sort(int from, int to);
+		
+		/**
+		 * Three-way partitions [from,to) around the element at {@code from},
+		 * returns {@code lt} and {@code gt} packed with {@link #pack(int, int)}
+		 * such that [from,lt) &lt; pivot, [lt,gt) == pivot and [gt,to) &gt; pivot.
+		 */
+		abstract long partition(int from, int to);
+		
+		static long pack(int lt, int gt) {
+			return (long) lt << 32 | gt;
+		}
+		
+		/** Reorders [from,to) so that index {@code k} holds the element it would hold if the range was sorted */
+		final void select(int from, int to, int k) {
+			if(k < from || k >= to)
+				throw new IndexOutOfBoundsException("Index " + k + " out of range [" + from + "," + to + ")");
+			int depthLimit = 2 * (32 - Integer.numberOfLeadingZeros(to - from));
+			while(to - from > SELECT_INSERTION_THRESHOLD) {
+				if(depthLimit-- == 0)
+					break;
+				swap(from, medianOfThree(from, (from + to) >>> 1, to-1));
+				long bounds = partition(from, to);
+				int lt = (int) (bounds >>> 32), gt = (int) bounds;
+				if(k < lt)
+					to = lt;
+				else if(k >= gt)
+					from = gt;
+				else
+					return;
+			}
+			sort(from, to);
+		}
+		
+		private int medianOfThree(int a, int b, int c) {
+			return compare(a, b) < 0 ?
+					(compare(b, c) < 0 ? b : compare(a, c) < 0 ? c : a) :
+					(compare(a, c) < 0 ? a : compare(b, c) < 0 ? c : b);
+		}
+		
+	}
+	
+	private static final class IntSelector extends Selector {
+		
+		private final int[] array;
+		
+		IntSelector(int[] array) {
+			this.array = array;
+		}
+		
+		@Override
+		int compare(int i, int j) {
+			return Integer.compare(array[i], array[j]);
+		}
+		
+		@Override
+		void swap(int i, int j) {
+			int t = array[i];
+			array[i] = array[j];
+			array[j] = t;
+		}
+		
+		@Override
+		void sort(int from, int to) {
+			Arrays.sort(array, from, to);
+		}
+		
+		@Override
+		long partition(int from, int to) {
+			int pivot = array[from];
+			// [from,lt) < pivot, [lt,i) == pivot, [gt,to) > pivot
+			int lt = from, i = from + 1, gt = to;
+			while(i < gt) {
+				int x = array[i];
+				if(x < pivot) {
+					array[i++] = array[lt];
+					array[lt++] = x;
+				} else if(x > pivot) {
+					array[i] = array[--gt];
+					array[gt] = x;
+				} else {
+					i++;
+				}
+			}
+			return pack(lt, gt);
+		}
+		
+	}
+	
+	private static final class LongSelector extends Selector {
+		
+		private final long[] array;
+		
+		LongSelector(long[] array) {
+			this.array = array;
+		}
+		
+		@Override
+		int compare(int i, int j) {
+			return Long.compare(array[i], array[j]);
+		}
+		
+		@Override
+		void swap(int i, int j) {
+			long t = array[i];
+			array[i] = array[j];
+			array[j] = t;
+		}
+		
+		@Override
+		void sort(int from, int to) {
+			Arrays.sort(array, from, to);
+		}
+		
+		@Override
+		long partition(int from, int to) {
+			long pivot = array[from];
+			// [from,lt) < pivot, [lt,i) == pivot, [gt,to) > pivot
+			int lt = from, i = from + 1, gt = to;
+			while(i < gt) {
+				long x = array[i];
+				if(x < pivot) {
+					array[i++] = array[lt];
+					array[lt++] = x;
+				} else if(x > pivot) {
+					array[i] = array[--gt];
+					array[gt] = x;
+				} else {
+					i++;
+				}
+			}
+			return pack(lt, gt);
+		}
+		
+	}
+	
+	/** Orders values like {@link Double#compare(double, double)}, as {@link Arrays#sort(double[])} does */
+	private static final class DoubleSelector extends Selector {
+		
+		private final double[] array;
+		
+		DoubleSelector(double[] array) {
+			this.array = array;
+		}
+		
+		@Override
+		int compare(int i, int j) {
+			return Double.compare(array[i], array[j]);
+		}
+		
+		@Override
+		void swap(int i, int j) {
+			double t = array[i];
+			array[i] = array[j];
+			array[j] = t;
+		}
+		
+		@Override
+		void sort(int from, int to) {
+			Arrays.sort(array, from, to);
+		}
+		
+		@Override
+		long partition(int from, int to) {
+			double pivot = array[from];
+			// [from,lt) < pivot, [lt,i) == pivot, [gt,to) > pivot
+			int lt = from, i = from + 1, gt = to;
+			while(i < gt) {
+				double x = array[i];
+				int c = Double.compare(x, pivot);
+				if(c < 0) {
+					array[i++] = array[lt];
+					array[lt++] = x;
+				} else if(c > 0) {
+					array[i] = array[--gt];
+					array[gt] = x;
+				} else {
+					i++;
+				}
+			}
+			return pack(lt, gt);
+		}
+		
+	}
+	
+	private static final class ObjectSelector<T> extends Selector {
+		
+		private final T[] array;
+		private final Comparator<? super T> comparator;
+		
+		ObjectSelector(T[] array, Comparator<? super T> comparator) {
+			this.array = array;
+			this.comparator = comparator;
+		}
+		
+		@Override
+		int compare(int i, int j) {
+			return comparator.compare(array[i], array[j]);
+		}
+		
+		@Override
+		void swap(int i, int j) {
+			T t = array[i];
+			array[i] = array[j];
+			array[j] = t;
+		}
+		
+		@Override
+		void sort(int from, int to) {
+			Arrays.sort(array, from, to, comparator);
+		}
+		
+		@Override
+		long partition(int from, int to) {
+			T pivot = array[from];
+			// [from,lt) < pivot, [lt,i) == pivot, [gt,to) > pivot
+			int lt = from, i = from + 1, gt = to;
+			while(i < gt) {
+				T x = array[i];
+				int c = comparator.compare(x, pivot);
+				if(c < 0) {
+					array[i++] = array[lt];
+					array[lt++] = x;
+				} else if(c > 0) {
+					array[i] = array[--gt];
+					array[gt] = x;
+				} else {
+					i++;
+				}
+			}
+			return pack(lt, gt);
+		}
+		
+	}
+	
+	/**
+	 * Returns the {@code k} smallest elements of {@code array} in ascending
+	 * order, or all of them if {@code array} contains less than {@code k}
+	 * elements. {@code array} is not modified.
+	 * <p>
+	 * This uses a bounded max-heap and runs in O(n log k) time using O(k)
+	 * memory. To get the {@code k} largest elements use a reversed comparator
+	 * with {@link #topK(Iterable, int, Comparator)}.
+	 */
+	public static int[] topK(int[] array, int k) {
+		if(k < 0)
+			throw new IllegalArgumentException("Negative k " + k);
+		if(k >= array.length)
+			return radixSort(array);
+		int[] heap = new int[k];
+		if(k == 0)
+			return heap;
+		System.arraycopy(array, 0, heap, 0, k);
+		for(int i = k/2-1; i >= 0; i--)
+			siftDown(heap, i, k);
+		for(int i = k; i < array.length; i++) {
+			if(array[i] < heap[0]) {
+				heap[0] = array[i];
+				siftDown(heap, 0, k);
+			}
+		}
+		Arrays.sort(heap);
+		return heap;
+	}
+	
+	/** Sift down for a max-heap of ints */
+	private static void siftDown(int[] heap, int i, int size) {
+		int x = heap[i];
+		while(true) {
+			int child = 2*i + 1;
+			if(child >= size)
+				break;
+			if(child + 1 < size && heap[child+1] > heap[child])
+				child++;
+			if(heap[child] <= x)
+				break;
+			heap[i] = heap[child];
+			i = child;
+		}
+		heap[i] = x;
+	}
+	
+	/**
+	 * Returns the {@code k} smallest elements according to {@code comparator}
+	 * in ascending order, or all of them if there are less than {@code k}
+	 * elements. Elements are only iterated once so this can be used on large
+	 * iterables that are not held in memory.
+	 * <p>
+	 * This uses a bounded max-heap and runs in O(n log k) time using O(k)
+	 * memory. To get the {@code k} largest elements use
+	 * {@code comparator.reversed()}.
+	 * 
+	 * @see #topKCollector(int, Comparator)
+	 */
+	public static <T> List<T> topK(Iterable<? extends T> elements, int k, Comparator<? super T> comparator) {
+		TopKHeap<T> heap = new TopKHeap<>(k, comparator);
+		for(T t : elements)
+			heap.offer(t);
+		return heap.toSortedList();
+	}
+	
+	/** see {@link #topK(Iterable, int, Comparator)} */
+	public static <T> List<T> topK(T[] array, int k, Comparator<? super T> comparator) {
+		return topK(Arrays.asList(array), k, comparator);
+	}
+	
+	/**
+	 * Returns a collector that collects the {@code k} smallest elements of a
+	 * stream according to {@code comparator} in ascending order, see
+	 * {@link #topK(Iterable, int, Comparator)}. The collector can be used with
+	 * parallel streams, partial heaps are merged.
+	 */
+	public static <T> Collector<T, ?, List<T>> topKCollector(int k, Comparator<? super T> comparator) {
+		return Collector.of(
+				() -> new TopKHeap<T>(k, comparator),
+				TopKHeap::offer,
+				TopKHeap::merge,
+				TopKHeap::toSortedList);
+	}
+	
+	private static class TopKHeap<T> {
+		
+		private final int k;
+		private final Comparator<? super T> comparator;
+		/** max-heap, the root is the greatest of the k smallest elements */
+		private final PriorityQueue<T> heap;
+		
+		TopKHeap(int k, Comparator<? super T> comparator) {
+			if(k < 0)
+				throw new IllegalArgumentException("Negative k " + k);
+			this.k = k;
+			this.comparator = comparator;
+			this.heap = new PriorityQueue<>(Math.max(1, Math.min(k, 1 << 10)), comparator.reversed());
+		}
+		
+		void offer(T t) {
+			if(heap.size() < k) {
+				heap.add(t);
+			} else if(k > 0 && comparator.compare(t, heap.peek()) < 0) {
+				heap.poll();
+				heap.add(t);
+			}
+		}
+		
+		TopKHeap<T> merge(TopKHeap<T> other) {
+			for(T t : other.heap)
+				offer(t);
+			return this;
+		}
+		
+		List<T> toSortedList() {
+			List<T> list = new ArrayList<>(heap);
+			list.sort(comparator);
+			return list;
+		}
+	}
+	
+	/**
+	 * Returns a comparator that orders objects by their class, in the order the
+	 * classes are given. Only exact classes are matched, objects of other
+	 * classes are placed last and {@code null}s are placed first.
+	 * <p>
+	 * The rank of each class is computed once and cached in a
+	 * {@link ClassValue} so comparisons do not scan the class array.
+	 */
 	public static <T> Comparator<T> sortByClass(Class<?>... classes) {
-		return new Comparator<>() {
-			
+		ClassValue<Integer> ranks = exactRanks(classes.clone());
+		return (o1, o2) -> {
+			int i1 = o1 == null ? -1 : ranks.get(o1.getClass());
+			int i2 = o2 == null ? -1 : ranks.get(o2.getClass());
+			return Integer.compare(i1, i2);
+		};
+	}
+	
+	/**
+	 * Returns a comparator that orders objects by inheritance, objects are
+	 * ranked by the most specific class of {@code classes} they are instances
+	 * of, with the classes ordered by {@link #inheritanceOrder(Class...)}.
+	 * Objects that are not instances of any of the classes are placed last and
+	 * {@code null}s are placed first.
+	 * <p>
+	 * The rank of each runtime class is computed once and cached in a
+	 * {@link ClassValue}, sub classes of the given classes do not need to be
+	 * listed.
+	 */
+	public static <T> Comparator<T> sortByInheritance(Class<?>... classes) {
+		Class<?>[] order = inheritanceOrder(classes);
+		ClassValue<Integer> ranks = new ClassValue<>() {
 			@Override
-			public int compare(Object o1, Object o2) {
-				int i1 = o1 == null ? -1 : getIndex(o1.getClass());
-				int i2 = o2 == null ? -1 : getIndex(o2.getClass());
-				return i1 - i2;
+			protected Integer computeValue(Class<?> type) {
+				// super classes come first so the last match is the most specific
+				for(int i = order.length-1; i >= 0; i--) {
+					if(order[i].isAssignableFrom(type))
+						return i;
+				}
+				return order.length;
+			}
+		};
+		return (o1, o2) -> {
+			int i1 = o1 == null ? -1 : ranks.get(o1.getClass());
+			int i2 = o2 == null ? -1 : ranks.get(o2.getClass());
+			return Integer.compare(i1, i2);
+		};
+	}
+	
+	/**
+	 * Returns the given classes topologically sorted by inheritance, every class
+	 * is placed after all of its super classes and implemented interfaces that
+	 * are part of {@code classes}. Unrelated classes keep the order in which
+	 * they were given and duplicates are removed.
+	 * 
+	 * @param classes the classes to sort
+	 * @return a new array containing the sorted classes
+	 */
+	public static Class<?>[] inheritanceOrder(Class<?>... classes) {
+		Class<?>[] unique = ArrayOperator.lazy(classes).distinct().finish(Class<?>[]::new);
+		int n = unique.length;
+		boolean[][] isSuper = new boolean[n][n];
+		int[] pendingSupers = new int[n];
+		for(int i = 0; i < n; i++) {
+			for(int j = 0; j < n; j++) {
+				if(i != j && unique[i].isAssignableFrom(unique[j])) {
+					isSuper[i][j] = true;
+					pendingSupers[j]++;
+				}
 			}
-			
-			private int getIndex(Class<?> c) {
+		}
+		Class<?>[] order = new Class<?>[n];
+		boolean[] placed = new boolean[n];
+		for(int k = 0; k < n; k++) {
+			// inheritance cannot have cycles, there is always a class ready
+			int next = 0;
+			while(placed[next] || pendingSupers[next] != 0)
+				next++;
+			placed[next] = true;
+			order[k] = unique[next];
+			for(int j = 0; j < n; j++) {
+				if(isSuper[next][j])
+					pendingSupers[j]--;
+			}
+		}
+		return order;
+	}
+	
+	/** Maps each class to its index in {@code classes}, other classes are mapped to {@code classes.length} */
+	private static ClassValue<Integer> exactRanks(Class<?>[] classes) {
+		return new ClassValue<>() {
+			@Override
+			protected Integer computeValue(Class<?> type) {
 				for(int i = 0; i < classes.length; i++) {
-					if(c == classes[i])
+					if(type == classes[i])
 						return i;
 				}
 				return classes.length;
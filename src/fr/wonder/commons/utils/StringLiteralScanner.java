@@ -0,0 +1,161 @@
+package fr.wonder.commons.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Finds the string literals of a text, that is the regions delimited by quote
+ * characters in which quotes can be escaped.
+ * <p>
+ * A literal starts at a quote character and ends at the next occurrence of the
+ * <b>same</b> quote that is not escaped, an escape character escapes the
+ * character following it whatever it is. Literals that reach the end of the
+ * text without being closed are reported as unterminated.
+ * <p>
+ * Unlike {@link StringUtils#STRING_PATTERN} the scanner is a plain loop over
+ * the text, its cost is linear in the length of the text whatever the number
+ * of escapes and it never recurses. Scanners are immutable and can be shared
+ * between threads.
+ * <p>
+ * Example use case: <blockquote>
+ *
+ * <pre>
+ *   StringLiteralScanner scanner = new StringLiteralScanner('\\', '"', '\'');
+ *   for(Literal l : scanner.findAll(line)) {
+ *     if(!l.isTerminated())
+ *       throw new ParsingException("Unterminated string at " + l.start());
+ *     String content = line.substring(l.contentStart(), l.contentEnd());
+ *   }
+ * </pre>
+ *
+ * </blockquote>
+ */
+public class StringLiteralScanner {
+
+	/** Scans double quoted literals escaped by backslashes, like java strings */
+	public static final StringLiteralScanner DOUBLE_QUOTES = new StringLiteralScanner('\\', '"');
+
+	private final CharMatcher quotes;
+	private final char escape;
+
+	/**
+	 * Creates a scanner for literals delimited by any of the given quotes.
+	 *
+	 * @param escape the escape character
+	 * @param quotes the quote characters, at least one is required
+	 * @throws IllegalArgumentException if no quote is given or if the escape
+	 *         character is also a quote
+	 */
+	public StringLiteralScanner(char escape, char... quotes) {
+		if(quotes.length == 0)
+			throw new IllegalArgumentException("No quote given");
+		this.quotes = CharMatcher.anyOf(quotes);
+		this.escape = escape;
+		if(this.quotes.matches(escape))
+			throw new IllegalArgumentException("The escape character cannot be a quote");
+	}
+
+	/** A string literal found in a text */
+	public static class Literal {
+
+		private final int start, end;
+		private final boolean terminated;
+
+		private Literal(int start, int end, boolean terminated) {
+			this.start = start;
+			this.end = end;
+			this.terminated = terminated;
+		}
+
+		/** Returns the index of the opening quote */
+		public int start() {
+			return start;
+		}
+
+		/**
+		 * Returns the index following the closing quote, or the length of the
+		 * text if the literal is unterminated
+		 */
+		public int end() {
+			return end;
+		}
+
+		/** Returns the index of the first character following the opening quote */
+		public int contentStart() {
+			return start + 1;
+		}
+
+		/** Returns the index of the closing quote, or the length of the text if the literal is unterminated */
+		public int contentEnd() {
+			return terminated ? end - 1 : end;
+		}
+
+		/** Returns false if the literal was not closed before the end of the text */
+		public boolean isTerminated() {
+			return terminated;
+		}
+
+		@Override
+		public String toString() {
+			return "Literal[" + start + "," + end + (terminated ? ")" : ") unterminated");
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if(!(o instanceof Literal))
+				return false;
+			Literal l = (Literal) o;
+			return start == l.start && end == l.end && terminated == l.terminated;
+		}
+
+		@Override
+		public int hashCode() {
+			return (start * 31 + end) * 2 + (terminated ? 1 : 0);
+		}
+	}
+
+	/**
+	 * Returns the first literal of {@code text} starting at or after
+	 * {@code from}, or null if there is none. {@code from} must not be inside
+	 * a literal.
+	 */
+	public Literal find(CharSequence text, int from) {
+		int start = quotes.indexOfAny(text, from);
+		if(start == -1)
+			return null;
+		int end = closingQuote(text, start);
+		return end == -1 ? new Literal(start, text.length(), false) : new Literal(start, end + 1, true);
+	}
+
+	/**
+	 * Returns all the literals of {@code text}, if the last one is
+	 * unterminated it extends to the end of the text.
+	 */
+	public List<Literal> findAll(CharSequence text) {
+		List<Literal> literals = new ArrayList<>();
+		for(Literal l = find(text, 0); l != null; l = find(text, l.end)) {
+			literals.add(l);
+			if(!l.terminated)
+				break;
+		}
+		return literals;
+	}
+
+	/**
+	 * Returns the index of the quote closing the literal opened at
+	 * {@code start}, or -1 if it is unterminated.
+	 */
+	private int closingQuote(CharSequence text, int start) {
+		char quote = text.charAt(start);
+		int length = text.length();
+		for(int i = start + 1; i < length; i++) {
+			char c = text.charAt(i);
+			if(c == escape)
+				i++;
+			else if(c == quote)
+				return i;
+		}
+		return -1;
+	}
+
+}
@@ -1,16 +1,17 @@
 package fr.wonder.commons.utils;
 
+import java.io.IOException;
 import java.lang.reflect.Array;
-import java.lang.reflect.Field;
-import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
-import java.util.List;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.Map;
+import java.util.Set;
 import java.util.function.Function;
-import java.util.regex.Matcher;
 import java.util.regex.Pattern;
-import java.util.stream.Collectors;
+
+import fr.wonder.commons.exceptions.UnreachableException;
 
 public class StringUtils {
 
@@ -19,7 +20,8 @@ public class StringUtils {
 	 * string.<br>
 	 * The pattern will look for quotes enclosing the text S with {@code S} being a
 	 * string containing no {@code "} character except for those preceded by an odd
-	 * number of {@code \} (escape char).
+	 * number of {@code \} (escape char). Each {@code \} escapes the character
+	 * following it, whatever it is (line terminators included).
 	 * 
 	 * <p>
 	 * Beware that only double quotes are matched.
@@ -37,9 +39,12 @@ public class StringUtils {
 	 * <blockquote><pre>
 	 * citation of "The book"
 	 * </pre></blockquote>
+	 * 
+	 * @see StringLiteralScanner a regex-free alternative that also reports
+	 *      unterminated literals
 	 */
 	public static final Pattern STRING_PATTERN = Pattern
-			.compile("\"(([^\"\\\\]*)|(\\\\(\\\\\\\\)*[^\\\\]))*(\\\\\\\\)*\"");
+			.compile("\"(?:[^\"\\\\]++|\\\\.)*+\"", Pattern.DOTALL);
 	
 	/**
 	 * The word pattern is just "\w+"
@@ -93,78 +98,521 @@ public class StringUtils {
 				+ "abcdefghijklmnopqrstuvwxyz"
 				+ "_0123456789").toCharArray();
 		}
+		
+		/** a-z A-Z */
+		public static final CharMatcher MATCHER_ALPHABET = CharMatcher.anyOf(CHARSET_ALPHABET);
+		/** 0-9 */
+		public static final CharMatcher MATCHER_NUMBERS = CharMatcher.anyOf(CHARSET_NUMBERS);
+		/** , . ; : ! ? */
+		public static final CharMatcher MATCHER_PONCTUATION = CharMatcher.anyOf(CHARSET_PONCTUATION);
+		/** ( ) { } [ ] ' " & */
+		public static final CharMatcher MATCHER_SECTIONS = CharMatcher.anyOf(CHARSET_SECTIONS);
+		/** + - / * % &lt; &gt; = & | ~ */
+		public static final CharMatcher MATCHER_OPERATORS = CharMatcher.anyOf(CHARSET_OPERATORS);
+		/** a-z A-Z 0-9 _, see {@link #getCharsetVarName()} */
+		public static final CharMatcher MATCHER_VAR_NAME = CharMatcher.anyOf(getCharsetVarName());
+		/** the characters matched by the "\s" regex: space \t \n \x0B \f \r */
+		public static final CharMatcher MATCHER_WHITESPACES = CharMatcher.anyOf(" \t\n\u000B\f\r");
 	}
 	
 	/**
 	 * This method will remove all white spaces ("\\s" regex) from the given text
-	 * without modifying quoted text, see {@link #STRING_PATTERN} for the detection
-	 * of quoted text.
+	 * without modifying quoted text, quoted text is detected by
+	 * {@link StringLiteralScanner#DOUBLE_QUOTES}. An unterminated literal is not
+	 * considered quoted.
 	 * 
 	 * @param text the text to strip of white spaces
 	 * @return the stripped text
 	 */
-	public static String stripContent(String text) {
-		Matcher m = STRING_PATTERN.matcher(text);
-		String stripped = "";
+	public static String stripContent(CharSequence text) {
+		StringBuilder sb = new StringBuilder(text.length());
+		try {
+			stripContent(text, sb);
+		} catch (IOException e) {
+			throw new UnreachableException(e);
+		}
+		return sb.toString();
+	}
+	
+	/**
+	 * Same as {@link #stripContent(CharSequence)} but appends the stripped text
+	 * to {@code out} instead of creating a new string. The text is scanned once,
+	 * characters are appended to {@code out} by runs.
+	 * 
+	 * @param text the text to strip of white spaces
+	 * @param out the appendable the stripped text is written to
+	 * @return {@code out}
+	 * @throws IOException if {@code out} throws
+	 */
+	public static <A extends Appendable> A stripContent(CharSequence text, A out) throws IOException {
+		int i = 0;
+		for(StringLiteralScanner.Literal l; (l = StringLiteralScanner.DOUBLE_QUOTES.find(text, i)) != null; ) {
+			appendNonWhitespace(text, i, l.start(), out);
+			i = l.start();
+			if(!l.isTerminated())
+				break;
+			out.append(text, i, l.end());
+			i = l.end();
+		}
+		// an unterminated literal is not a literal, nor are the quotes following it
+		appendNonWhitespace(text, i, text.length(), out);
+		return out;
+	}
+	
+	private static void appendNonWhitespace(CharSequence text, int from, int to, Appendable out) throws IOException {
+		int start = from;
+		for(int i = from; i < to; i++) {
+			if(Charsets.MATCHER_WHITESPACES.matches(text.charAt(i))) {
+				if(start != i)
+					out.append(text, start, i);
+				start = i + 1;
+			}
+		}
+		if(start != to)
+			out.append(text, start, to);
+	}
+	
+	/**
+	 * Escapes {@code text} so that it can be placed between two
+	 * {@code quoteSymbol}s, backslashes and quote symbols are prefixed by a
+	 * backslash and control characters are replaced by their escape sequence
+	 * ({@code \n}, {@code \t}... or {@code \}{@code u00XX}). The result can be
+	 * decoded by {@link #unescape(CharSequence)}.
+	 * 
+	 * @param text the text to escape
+	 * @param quoteSymbol the quote that will surround the text
+	 * @return the escaped text
+	 */
+	public static String escape(CharSequence text, char quoteSymbol) {
+		StringBuilder sb = new StringBuilder(text.length() + 16);
+		try {
+			escape(text, quoteSymbol, sb);
+		} catch (IOException e) {
+			throw new UnreachableException(e);
+		}
+		return sb.toString();
+	}
+	
+	/**
+	 * Same as {@link #escape(CharSequence, char)} but appends the escaped text to
+	 * {@code out}.
+	 * 
+	 * @return {@code out}
+	 * @throws IOException if {@code out} throws
+	 */
+	public static <A extends Appendable> A escape(CharSequence text, char quoteSymbol, A out) throws IOException {
+		int length = text.length();
 		int start = 0;
-		while (m.find(start)) {
-			stripped += text.substring(start, m.start()).replaceAll("\\s", "");
-			stripped += m.group();
-			start = m.end();
+		for(int i = 0; i < length; i++) {
+			char c = text.charAt(i);
+			if(c == '\\' || c == quoteSymbol) {
+				out.append(text, start, i).append('\\');
+				start = i;
+			} else if(c < ' ' || c == 0x7f) {
+				out.append(text, start, i).append('\\');
+				start = i + 1;
+				switch(c) {
+				case '\b': out.append('b'); break;
+				case '\f': out.append('f'); break;
+				case '\n': out.append('n'); break;
+				case '\r': out.append('r'); break;
+				case '\t': out.append('t'); break;
+				default: out.append("u00").append(HEX_DIGITS[c >> 4]).append(HEX_DIGITS[c & 0xf]); break;
+				}
+			}
 		}
-		stripped += text.substring(start).replaceAll("\\s", "");
-		return stripped;
+		out.append(text, start, length);
+		return out;
 	}
-
-	public static String escape(String text, char quoteSymbol) {
-		return text
-				.replaceAll("\\", "\\\\")
-				.replaceAll(String.valueOf(quoteSymbol), "\\" + quoteSymbol);
+	
+	private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+	
+	/**
+	 * Replaces the escape sequences of {@code text} by the characters they
+	 * represent. Supported sequences are those of {@link #getEscapedChar(char)},
+	 * octal sequences {@code \0} to {@code \377} (one to three digits, three only if
+	 * the first one is at most 3 as in java: {@code \477} is {@code \47} followed
+	 * by {@code 7}), hexadecimal
+	 * sequences {@code \xHH} and unicode sequences {@code \}{@code uXXXX}.
+	 * 
+	 * @param text the text to unescape
+	 * @return the unescaped text, {@code text} itself if it is a string without
+	 *         escape sequence
+	 * @throws IllegalArgumentException if {@code text} contains an invalid escape
+	 *         sequence, the message contains its offset
+	 */
+	public static String unescape(CharSequence text) {
+		if(text instanceof String && ((String) text).indexOf('\\') == -1)
+			return (String) text;
+		StringBuilder sb = new StringBuilder(text.length());
+		try {
+			unescape(text, sb);
+		} catch (IOException e) {
+			throw new UnreachableException(e);
+		}
+		return sb.toString();
+	}
+	
+	/**
+	 * Same as {@link #unescape(CharSequence)} but appends the unescaped text to
+	 * {@code out}. Runs of characters without escape sequences are appended at
+	 * once.
+	 * 
+	 * @return {@code out}
+	 * @throws IOException if {@code out} throws
+	 * @throws IllegalArgumentException if {@code text} contains an invalid escape
+	 *         sequence, the message contains its offset
+	 */
+	public static <A extends Appendable> A unescape(CharSequence text, A out) throws IOException {
+		int length = text.length();
+		int start = 0;
+		for(int i = indexOf(text, '\\', 0); i != -1; i = indexOf(text, '\\', start)) {
+			out.append(text, start, i);
+			if(i+1 == length)
+				throw new IllegalArgumentException("Unterminated escape sequence at offset " + i);
+			char c = text.charAt(i+1);
+			if(c >= '0' && c <= '7') {
+				// like in java, three digits only if the sequence stays below \377
+				int end = i+1, value = 0, last = Math.min(length, i + (c <= '3' ? 4 : 3));
+				while(end < last && text.charAt(end) >= '0' && text.charAt(end) <= '7')
+					value = value * 8 + text.charAt(end++) - '0';
+				out.append((char) value);
+				start = end;
+			} else if(c == 'x' || c == 'u') {
+				int end = i + (c == 'x' ? 4 : 6);
+				int value = end <= length ? parseHex(text, i+2, end) : -1;
+				if(value == -1)
+					throw new IllegalArgumentException("Invalid escape sequence \"" + text.subSequence(i, Math.min(end, length)) + "\" at offset " + i);
+				out.append((char) value);
+				start = end;
+			} else {
+				char escaped;
+				try {
+					escaped = getEscapedChar(c);
+				} catch (IllegalArgumentException e) {
+					throw new IllegalArgumentException(e.getMessage() + " at offset " + i);
+				}
+				out.append(escaped);
+				start = i+2;
+			}
+		}
+		out.append(text, start, length);
+		return out;
+	}
+	
+	/** Returns the value of the hexadecimal number {@code text[from..to)}, or -1 if it is not one */
+	private static int parseHex(CharSequence text, int from, int to) {
+		int value = 0;
+		for(int i = from; i < to; i++) {
+			// only ascii digits, Character.digit accepts any unicode digit
+			char c = text.charAt(i);
+			if(c >= '0' && c <= '9')
+				value = value * 16 + c - '0';
+			else if(c >= 'a' && c <= 'f')
+				value = value * 16 + c - 'a' + 10;
+			else if(c >= 'A' && c <= 'F')
+				value = value * 16 + c - 'A' + 10;
+			else
+				return -1;
+		}
+		return value;
+	}
+	
+	/** Returns the index of the first {@code c} in {@code text} at or after {@code from}, or -1 */
+	private static int indexOf(CharSequence text, char c, int from) {
+		if(text instanceof String)
+			return ((String) text).indexOf(c, from);
+		int length = text.length();
+		for(int i = from; i < length; i++) {
+			if(text.charAt(i) == c)
+				return i;
+		}
+		return -1;
 	}
 
 	public static String toString(Map<?, ?> map) {
-		return map.keySet().stream().map(k -> k + "=" + deepToString(map.get(k)))
-				.collect(Collectors.joining(", ", "{", "}"));
+		StringBuilder sb = new StringBuilder(2 + map.size() * 16);
+		appendMap(sb, map);
+		return sb.toString();
+	}
+	
+	/**
+	 * Same as {@link #toString(Map)} but appends the representation of
+	 * {@code map} to {@code out}.
+	 * 
+	 * @return {@code out}
+	 * @throws IOException if {@code out} throws
+	 */
+	public static <A extends Appendable> A toString(A out, Map<?, ?> map) throws IOException {
+		if(out instanceof StringBuilder) {
+			appendMap((StringBuilder) out, map);
+		} else {
+			StringBuilder sb = new StringBuilder(2 + map.size() * 16);
+			appendMap(sb, map);
+			out.append(sb);
+		}
+		return out;
+	}
+	
+	private static void appendMap(StringBuilder sb, Map<?, ?> map) {
+		sb.append('{');
+		boolean first = true;
+		for(Map.Entry<?, ?> e : map.entrySet()) {
+			if(!first)
+				sb.append(", ");
+			first = false;
+			sb.append(e.getKey()).append('=');
+			appendUnwrapped(sb, e.getValue());
+		}
+		sb.append('}');
 	}
 
 	/**
 	 * Returns the deep String representation of object {@code o}.
 	 * <p>
 	 * If {@code o} is {@code null}, {@code "null"} is returned, if
-	 * {@code o} is an array, {@link Arrays#deepToString(Object[])}
-	 * is returned, otherwise {@code o.toString()} is returned.
+	 * {@code o} is an array, its elements as printed by
+	 * {@link Arrays#deepToString(Object[])} are returned without the
+	 * enclosing brackets ({@code "1, 2"} for <code>{1, 2}</code>),
+	 * otherwise {@code o.toString()} is returned.
 	 * 
 	 * @param o the object
 	 * @return the string representation of the object
 	 */
 	public static String deepToString(Object o) {
-		if (o == null)
+		if(o == null)
 			return "null";
-		if (o.getClass().isArray()) {
-			// o cannot be casted to Object[], use a temporary object array
-			String repr = Arrays.deepToString(new Object[] {o});
-			return repr.substring(2, repr.length()-2);
+		if(!o.getClass().isArray())
+			return o.toString();
+		StringBuilder sb = new StringBuilder(2 + Array.getLength(o) * 8);
+		appendUnwrapped(sb, o);
+		return sb.toString();
+	}
+	
+	/**
+	 * Same as {@link #deepToString(Object)} but appends the representation of
+	 * {@code o} to {@code out}. Arrays of primitives are printed without boxing
+	 * their elements.
+	 * 
+	 * @return {@code out}
+	 * @throws IOException if {@code out} throws
+	 */
+	public static <A extends Appendable> A deepToString(A out, Object o) throws IOException {
+		if(out instanceof StringBuilder)
+			appendUnwrapped((StringBuilder) out, o);
+		else if(o == null || !o.getClass().isArray())
+			out.append(String.valueOf(o));
+		else
+			out.append(deepToString(o));
+		return out;
+	}
+	
+	/** Appends {@code o} without the brackets of the outermost array, see {@link #deepToString(Object)} */
+	private static void appendUnwrapped(StringBuilder sb, Object o) {
+		int start = sb.length();
+		appendDeep(sb, o, null);
+		if(o != null && o.getClass().isArray()) {
+			sb.setLength(sb.length() - 1);
+			sb.deleteCharAt(start);
+		}
+	}
+	
+	/**
+	 * Appends {@code o} like {@link Arrays#deepToString(Object[])} would,
+	 * {@code path} contains the arrays being printed and is created lazily.
+	 */
+	private static void appendDeep(StringBuilder sb, Object o, Set<Object[]> path) {
+		if(o == null) {
+			sb.append("null");
+			return;
+		}
+		Class<?> type = o.getClass();
+		if(!type.isArray()) {
+			sb.append(o);
+		} else if(type == int[].class) {
+			int[] a = (int[]) o;
+			sb.append('[');
+			for(int i = 0; i < a.length; i++)
+				(i == 0 ? sb : sb.append(", ")).append(a[i]);
+			sb.append(']');
+		} else if(type == long[].class) {
+			long[] a = (long[]) o;
+			sb.append('[');
+			for(int i = 0; i < a.length; i++)
+				(i == 0 ? sb : sb.append(", ")).append(a[i]);
+			sb.append(']');
+		} else if(type == double[].class) {
+			double[] a = (double[]) o;
+			sb.append('[');
+			for(int i = 0; i < a.length; i++)
+				(i == 0 ? sb : sb.append(", ")).append(a[i]);
+			sb.append(']');
+		} else if(type == float[].class) {
+			float[] a = (float[]) o;
+			sb.append('[');
+			for(int i = 0; i < a.length; i++)
+				(i == 0 ? sb : sb.append(", ")).append(a[i]);
+			sb.append(']');
+		} else if(type == char[].class) {
+			char[] a = (char[]) o;
+			sb.append('[');
+			for(int i = 0; i < a.length; i++)
+				(i == 0 ? sb : sb.append(", ")).append(a[i]);
+			sb.append(']');
+		} else if(type == byte[].class) {
+			byte[] a = (byte[]) o;
+			sb.append('[');
+			for(int i = 0; i < a.length; i++)
+				(i == 0 ? sb : sb.append(", ")).append(a[i]);
+			sb.append(']');
+		} else if(type == short[].class) {
+			short[] a = (short[]) o;
+			sb.append('[');
+			for(int i = 0; i < a.length; i++)
+				(i == 0 ? sb : sb.append(", ")).append(a[i]);
+			sb.append(']');
+		} else if(type == boolean[].class) {
+			boolean[] a = (boolean[]) o;
+			sb.append('[');
+			for(int i = 0; i < a.length; i++)
+				(i == 0 ? sb : sb.append(", ")).append(a[i]);
+			sb.append(']');
+		} else {
+			Object[] a = (Object[]) o;
+			if(path == null)
+				path = Collections.newSetFromMap(new IdentityHashMap<>());
+			if(!path.add(a)) {
+				sb.append("[...]");
+				return;
+			}
+			sb.append('[');
+			for(int i = 0; i < a.length; i++) {
+				if(i != 0)
+					sb.append(", ");
+				appendDeep(sb, a[i], path);
+			}
+			sb.append(']');
+			path.remove(a);
 		}
-		return o.toString();
 	}
 
 	@SafeVarargs
 	public static <T> String join(String delimiter, T... objects) {
-		return join(delimiter, objects, String::valueOf);
+		int length = delimiter.length() * Math.max(0, objects.length - 1);
+		for(T o : objects)
+			length += o instanceof CharSequence ? ((CharSequence) o).length() : 16;
+		StringBuilder sb = new StringBuilder(length);
+		for(int i = 0; i < objects.length; i++)
+			appendValue(i == 0 ? sb : sb.append(delimiter), objects[i]);
+		return sb.toString();
 	}
 	
 	public static String join(String delimiter, Collection<?> objects) {
-		return join(delimiter, objects, String::valueOf);
+		StringBuilder sb = new StringBuilder(objects.size() * (16 + delimiter.length()));
+		joinTo(sb, delimiter, objects);
+		return sb.toString();
 	}
 	
 	public static <T> String join(String delimiter, T[] objects, Function<T, String> function) {
-		String[] strings = ArrayOperator.map(objects, new String[objects.length], function);
-		return String.join(delimiter, strings);
+		StringBuilder sb = new StringBuilder(objects.length * (16 + delimiter.length()));
+		try {
+			return join(sb, delimiter, objects, function).toString();
+		} catch (IOException e) {
+			throw new UnreachableException(e);
+		}
 	}
 	
 	public static <T> String join(String delimiter, Collection<T> objects, Function<T, String> function) {
-		String[] strings = objects.stream().map(function).toArray(String[]::new);
-		return String.join(delimiter, strings);
+		StringBuilder sb = new StringBuilder(objects.size() * (16 + delimiter.length()));
+		try {
+			return join(sb, delimiter, objects, function).toString();
+		} catch (IOException e) {
+			throw new UnreachableException(e);
+		}
+	}
+	
+	/**
+	 * Appends the string representations of {@code objects} to {@code out},
+	 * separated by {@code delimiter}. Elements that are char sequences are
+	 * appended directly, others using {@code String.valueOf}.
+	 * 
+	 * @return {@code out}
+	 * @throws IOException if {@code out} throws
+	 */
+	public static <A extends Appendable> A join(A out, String delimiter, Object[] objects) throws IOException {
+		for(int i = 0; i < objects.length; i++)
+			appendValue(i == 0 ? out : out.append(delimiter), objects[i]);
+		return out;
+	}
+	
+	/** see {@link #join(Appendable, String, Object[])} */
+	public static <A extends Appendable> A join(A out, String delimiter, Iterable<?> objects) throws IOException {
+		joinTo(out, delimiter, objects);
+		return out;
+	}
+	
+	/** see {@link #join(Appendable, String, Object[])} */
+	public static <A extends Appendable, T> A join(A out, String delimiter, T[] objects, Function<T, String> function) throws IOException {
+		for(int i = 0; i < objects.length; i++)
+			(i == 0 ? out : out.append(delimiter)).append(function.apply(objects[i]));
+		return out;
+	}
+	
+	/** see {@link #join(Appendable, String, Object[])} */
+	public static <A extends Appendable, T> A join(A out, String delimiter, Iterable<T> objects, Function<T, String> function) throws IOException {
+		boolean first = true;
+		for(T o : objects) {
+			if(!first)
+				out.append(delimiter);
+			first = false;
+			out.append(function.apply(o));
+		}
+		return out;
+	}
+	
+	private static void joinTo(StringBuilder sb, String delimiter, Iterable<?> objects) {
+		try {
+			joinTo((Appendable) sb, delimiter, objects);
+		} catch (IOException e) {
+			throw new UnreachableException(e);
+		}
+	}
+	
+	private static void joinTo(Appendable out, String delimiter, Iterable<?> objects) throws IOException {
+		boolean first = true;
+		for(Object o : objects) {
+			if(!first)
+				out.append(delimiter);
+			first = false;
+			appendValue(out, o);
+		}
+	}
+	
+	private static void appendValue(StringBuilder sb, Object o) {
+		if(o instanceof CharSequence)
+			sb.append((CharSequence) o);
+		else
+			sb.append(o);
+	}
+	
+	private static void appendValue(Appendable out, Object o) throws IOException {
+		if(o instanceof CharSequence)
+			out.append((CharSequence) o);
+		else
+			out.append(String.valueOf(o));
+	}
+	
+	private static final byte LETTER = 1, DIGIT = 2, WORD = 4;
+	/** classes of ASCII characters, see {@link #isLetterChar(char)} */
+	private static final byte[] ASCII_CLASSES = new byte[128];
+	static {
+		for(char c = 'a'; c <= 'z'; c++)
+			ASCII_CLASSES[c] = LETTER | WORD;
+		for(char c = 'A'; c <= 'Z'; c++)
+			ASCII_CLASSES[c] = LETTER | WORD;
+		for(char c = '0'; c <= '9'; c++)
+			ASCII_CLASSES[c] = DIGIT | WORD;
+		ASCII_CLASSES['_'] = WORD;
 	}
 	
 	/**
@@ -174,7 +622,7 @@ public class StringUtils {
 	 * @return {@code true} if {@code c} is a letter
 	 */
 	public static boolean isLetterChar(char c) {
-		return ('a' <= c && c <= 'z') || ('A' <= c && c <= 'Z');
+		return c < 128 && (ASCII_CLASSES[c] & LETTER) != 0;
 	}
 	
 	/**
@@ -184,7 +632,7 @@ public class StringUtils {
 	 * @return {@code true} if {@code c} is a digit
 	 */
 	public static boolean isDigitChar(char c) {
-		return '0' <= c && c <= '9';
+		return c < 128 && (ASCII_CLASSES[c] & DIGIT) != 0;
 	}
 	
 	/**
@@ -195,17 +643,17 @@ public class StringUtils {
 	 * @return {@code true} if {@code c} is a word character
 	 */
 	public static boolean isWordChar(char c) {
-		return isLetterChar(c) || c == '_' || isDigitChar(c);
+		return c < 128 && (ASCII_CLASSES[c] & WORD) != 0;
 	}
 	
 	/**
 	 * Returns the character corresponding to the given escape sequence character.
 	 * <p>
 	 * Escaped characters contains special codes such as the line break '\n',
-	 * form feed '\f', escape character '\\'...
+	 * form feed '\f', escape character '\\', bell '\a', vertical tab '\v'...
 	 * <p>
-	 * This method does not handle some special characters, the ascii octal and
-	 * hexadecimal '\xhh' notations are not supported, nor are '\a', '\v', '\?'.
+	 * Sequences made of more than one character (octal, hexadecimal '\xhh' and
+	 * unicode notations) are handled by {@link #unescape(CharSequence)}.
 	 * 
 	 * @param escaped the escaped character
 	 * @return the value of '\escaped'
@@ -217,6 +665,9 @@ public class StringUtils {
 		case 'n': return '\n';
 		case 'r': return '\r';
 		case 't': return '\t';
+		case 'a': return '\u0007';
+		case 'v': return '\u000B';
+		case '?': return '?';
 		case '\'': return '\'';
 		case '\"': return '\"';
 		case '\\': return '\\';
@@ -228,58 +679,40 @@ public class StringUtils {
 	 * Creates a string representation of an object recursively.
 	 * 
 	 * <p>
-	 * This method explores all fields of the given object (recursively)
-	 * and appends them to a string representation. This method <b>does not</b>
-	 * handle recursive data structures, if there is a cycle in the data
-	 * (obj1 has a field with value obj2 and obj2 has a field with value obj1)
-	 * this method will cause a stack overflow.
+	 * This method explores all public fields of the given object (recursively)
+	 * and appends them to a string representation. Numbers, booleans, characters
+	 * and enums are printed using their {@code toString} method, strings are
+	 * quoted and arrays are printed element by element. If there is a cycle in
+	 * the data (obj1 has a field with value obj2 and obj2 has a field with value
+	 * obj1) {@code <cycle>} is printed instead of the object being visited again.
 	 * 
 	 * <p>
 	 * Note that if the object's class is not exported by its module most fields
 	 * won't be accessed and "{}" will be returned.
+	 * 
+	 * @see #toObjectString(Object, int, int)
 	 */
 	public static String toObjectString(Object o) {
-		if(o == null)
-			return "null";
-		Class<?> clazz = o.getClass();
+		return toObjectString(o, Integer.MAX_VALUE, Integer.MAX_VALUE);
+	}
+	
+	/**
+	 * Same as {@link #toObjectString(Object)} with a limited budget, objects and
+	 * arrays nested deeper than {@code maxDepth} are replaced by {@code ...} and
+	 * the representation is cut after about {@code maxLength} characters.
+	 * <p>
+	 * The fields to print are resolved once per class, which makes dumping
+	 * large object graphs much faster than reading fields by reflection.
+	 * 
+	 * @param o the object to print
+	 * @param maxDepth the maximum number of nested objects or arrays to explore
+	 * @param maxLength the length after which the representation is truncated
+	 */
+	public static String toObjectString(Object o, int maxDepth, int maxLength) {
+		if(maxDepth < 0 || maxLength < 0)
+			throw new IllegalArgumentException("Negative budget");
 		StringBuilder sb = new StringBuilder();
-		if(Number.class.isAssignableFrom(clazz) || clazz == Boolean.class) {
-			return o.toString();
-		} else if(clazz == String.class) {
-			return '"' + (String) o + '"';
-		} else if(clazz.isArray()) {
-			int len = Array.getLength(o);
-			if(len == 0)
-				return "[]";
-			sb.append('[');
-			for(int i = 0; i < len; i++) {
-				sb.append(toObjectString(Array.get(o, i)));
-				sb.append(", ");
-			}
-			sb.setLength(sb.length()-2);
-			sb.append(']');
-		} else if(clazz.isEnum()) {
-			return o.toString();
-		} else {
-			Field[] fields = clazz.getFields();
-			if(fields.length == 0)
-				return "{}";
-			sb.append('{');
-			for(Field f : fields) {
-				try {
-					if(!f.trySetAccessible())
-						continue;
-					sb.append(f.getName() + "=");
-					sb.append(toObjectString(f.get(o)));
-					sb.append(", ");
-				} catch (IllegalAccessException e) {
-					throw new IllegalArgumentException("Unable to access field " + f.getName(), e);
-				}
-			}
-			if(sb.length() > 1)
-				sb.setLength(sb.length()-2);
-			sb.append("}");
-		}
+		new ObjectPrinter(sb, maxDepth, maxLength).print(o, 0);
 		return sb.toString();
 	}
 	
@@ -297,109 +730,33 @@ public class StringUtils {
 	 * splitWithQuotes("abc \\\" def \"gh ij\" kl", " ", {'"'}) == ["abc", "\"", "def", "gh ij", "kl"]
 	 * </blockquote></pre>
 	 * <p>
-	 * When using multiple quote markers, note that they are not differentiated, for
-	 * example if {@code quoteMarkers == ["\"","'"]}, a string that begins with
-	 * {@code "} can end with {@code '}, so escape any of these character in a text
-	 * sequence.
-	 * <p>
-	 * Original source code from java2s.com
+	 * A quoted part must end with the quote marker it began with. See
+	 * {@link Tokenizer} for the exact rules, to split large texts or to read
+	 * tokens from a {@code Reader} use a {@code Tokenizer} directly.
 	 * 
 	 * @param text         the text to split
 	 * @param separator    a non regexp separator that will be used to split the
 	 *                     text
 	 * @param quoteMarkers a set of markers used to delimit regions
 	 * @return the spliced text
+	 * @throws IllegalArgumentException if a quoted part is not terminated
 	 */
 	public static String[] splitWithQuotes(String text, String separator, char[] quoteMarkers) {
-		List<String> strings = new ArrayList<>();
-		int level = 0;
-		StringBuffer buffer = new StringBuffer();
-		for(int i = 0; i < text.length(); i++) {
-			char c = text.charAt(i);
-			if(ArrayOperator.contains(quoteMarkers, c)) {
-				if(i == 0) {
-					level++;
-					if(level == 1)
-						continue;
-				} else if(text.startsWith(separator, i - 1)) {
-					i += separator.length()-1;
-					level++;
-					if(level == 1)
-						continue;
-				} else if(i == text.length() - 1) {
-					level--;
-					if(level == 0)
-						continue;
-				} else if(text.startsWith(separator, i + 1)) {
-					level--;
-					i += separator.length()-1;
-					if(level == 0)
-						continue;
-				} else if(ArrayOperator.contains(quoteMarkers, text.charAt(i + 1))) {
-					level--;
-					if(level == 0)
-						continue;
-				}
-			} else if(c == '\\' && i < text.length() - 1 &&
-					ArrayOperator.contains(quoteMarkers, text.charAt(i + 1))) {
-				c = text.charAt(i+1);
-				i++;
-			} else if(level == 0 && text.charAt(i) == ' ') {
-				if(buffer.length() > 0) {
-					strings.add(buffer.toString());
-					buffer.setLength(0);
-				}
-			} else {
-				buffer.append(c);
-			}
-		}
-		if(buffer.length() != 0)
-			strings.add(buffer.toString());
-		return strings.toArray(String[]::new);
+		return new Tokenizer(quoteMarkers, separator).split(text);
 	}
 	
+	/**
+	 * Formats a string like {@code String.format} and replaces the color codes
+	 * ({@code $r}, {@code $196f}...) by ANSI sequences, see {@link AnsiTemplate}
+	 * for the list of codes. The format is compiled once and cached, to format
+	 * many lines with the same format {@link AnsiTemplate#compile(String)} can
+	 * also be used directly.
+	 * 
+	 * @throws IllegalArgumentException if the format or an argument contains an
+	 *         undefined color code or if the format is invalid
+	 */
 	public static String formatAnsi(String format, Object... args) {
-		StringBuilder sb = new StringBuilder(String.format(format, args));
-		int sqMarker = -1;
-		while((sqMarker = sb.indexOf("$", sqMarker+1)) != -1) {
-			if(sqMarker == sb.length()-2)
-				break;
-			char c = sb.charAt(sqMarker+1);
-			int read = 1;
-			String ansi = null;
-			if(isDigitChar(c)) {
-				for(; read < 3; read++) {
-					char cc = sb.charAt(sqMarker+1+read);
-					if(cc == 'b')
-						ansi = "\u001b[48;5;" + sb.substring(sqMarker+1, sqMarker+1+read) + "m";
-					else if(cc == 'f')
-						ansi = "\u001b[38;5;" + sb.substring(sqMarker+1, sqMarker+1+read) + "m";
-					if(!isDigitChar(cc))
-						break;
-				}
-				if(ansi == null)
-					throw new IllegalArgumentException("Undefined color sequence " + sb.substring(sqMarker, sqMarker+3));
-			} else {
-				read++;
-				switch(c) {
-				case 'R': ansi = "\u001b[0m"; break; // R - reset
-				case 'B': ansi = "\u001b[38;5;0m";   break; // B - black
-				case 'w': ansi = "\u001b[38;5;255m"; break; // w - white
-				case 'r': ansi = "\u001b[38;5;1m";   break; // r - red
-				case 'g': ansi = "\u001b[38;5;2m";   break; // g - green
-				case 'b': ansi = "\u001b[38;5;4m";   break; // b - blue
-				case 'y': ansi = "\u001b[38;5;3m";   break; // y - yellow
-				case 'p': ansi = "\u001b[38;5;93m";  break; // p - purple
-				case 'c': ansi = "\u001b[38;5;6m";   break; // c - cyan
-				case 'l': ansi = "\u001b[38;5;10m";  break; // l - light green
-				case '$': ansi = "$"; break;
-				default: throw new IllegalArgumentException("Undefined color sequence " + c);
-				}
-			}
-			sb.replace(sqMarker, sqMarker+read, ansi);
-		}
-		sb.append("\u001b[0m");
-		return sb.toString();
+		return AnsiTemplate.compile(format).format(args);
 	}
 	
 }
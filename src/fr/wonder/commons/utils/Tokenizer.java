@@ -0,0 +1,342 @@
+package fr.wonder.commons.utils;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.CharBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Splits texts in tokens separated by separators, handling quoted tokens.
+ * <p>
+ * A tokenizer only holds its configuration (separators and quote markers),
+ * it is immutable and can be reused and shared between threads to tokenize
+ * any number of texts or {@link Reader}s. Tokens are streamed, they are views
+ * over the tokenized text and are only copied if {@link Token#toString()} or
+ * {@link Token#unescaped()} is called.
+ * <p>
+ * Rules:
+ * <ul>
+ * <li>Tokens are separated by one or more separators, consecutive separators
+ * do not produce empty tokens. Separators may be longer than one character,
+ * when multiple separators match the longest one is used.</li>
+ * <li>A token beginning with a quote marker is quoted, it ends at the next
+ * occurrence of the <b>same</b> marker that is followed by a separator or by
+ * the end of the text. Separators and other quote markers inside a quoted token
+ * are part of the token, quote markers delimiting the token are not.</li>
+ * <li>A backslash followed by a quote marker is an escaped quote marker, it
+ * never opens nor closes a quoted token and is replaced by the marker alone in
+ * {@link Token#unescaped() unescaped} tokens. Other backslashes are kept as
+ * is.</li>
+ * </ul>
+ * <p>
+ * Example use case: <blockquote>
+ *
+ * <pre>
+ *   Tokenizer tokenizer = new Tokenizer(" ");
+ *   for(Token token : tokenizer.tokenize(commandFile)) {
+ *     ...
+ *   }
+ * </pre>
+ *
+ * </blockquote>
+ *
+ * @see StringUtils#splitWithQuotes(String, String, char[])
+ */
+public class Tokenizer {
+
+	private static final char ESCAPE = '\\';
+	private static final int READER_BUFFER_SIZE = 8192;
+
+	/** separators sorted by decreasing length */
+	private final char[][] separators;
+	/** first characters of separators */
+	private final CharMatcher separatorStarts;
+	private final CharMatcher quotes;
+
+	/**
+	 * Creates a tokenizer using {@code separator} and the default quote markers
+	 * {@code '} and {@code "}.
+	 */
+	public Tokenizer(String separator) {
+		this(new char[] { '\'', '"' }, separator);
+	}
+
+	/**
+	 * Creates a tokenizer splitting on any of the given separators.
+	 *
+	 * @param quoteMarkers the characters delimiting quoted tokens, may be empty
+	 * @param separators the separators, at least one is required
+	 * @throws IllegalArgumentException if no separator is given, if a separator
+	 *         is empty or contains a quote marker or a backslash
+	 */
+	public Tokenizer(char[] quoteMarkers, String... separators) {
+		if(separators.length == 0)
+			throw new IllegalArgumentException("No separator given");
+		this.quotes = CharMatcher.anyOf(quoteMarkers);
+		this.separators = new char[separators.length][];
+		char[] starts = new char[separators.length];
+		for(int i = 0; i < separators.length; i++) {
+			String s = separators[i];
+			if(s.isEmpty())
+				throw new IllegalArgumentException("Empty separator");
+			for(int j = 0; j < s.length(); j++) {
+				if(s.charAt(j) == ESCAPE || quotes.matches(s.charAt(j)))
+					throw new IllegalArgumentException("Separator " + s + " contains a quote or escape character");
+			}
+			this.separators[i] = s.toCharArray();
+			starts[i] = s.charAt(0);
+		}
+		Arrays.sort(this.separators, (s1, s2) -> s2.length - s1.length);
+		this.separatorStarts = CharMatcher.anyOf(starts);
+	}
+
+	/** Returns a stream of the tokens of {@code text} */
+	public TokenStream tokenize(CharSequence text) {
+		return new TokenStream(text);
+	}
+
+	/**
+	 * Returns a stream of the tokens read from {@code reader}, the reader is
+	 * read incrementally as tokens are requested but is not closed by the
+	 * stream.
+	 * <p>
+	 * Tokens returned by the stream are views over its internal buffer, they
+	 * are only valid until the next call to {@code hasNext} or {@code next},
+	 * use {@link Token#toString()} to keep them longer. I/O errors are thrown as
+	 * {@link UncheckedIOException}s.
+	 */
+	public TokenStream tokenize(Reader reader) {
+		return new TokenStream(reader);
+	}
+
+	/**
+	 * Returns the {@link Token#unescaped() unescaped} tokens of {@code text}.
+	 *
+	 * @throws IllegalArgumentException if {@code text} contains an unterminated
+	 *         quoted token
+	 */
+	public String[] split(CharSequence text) {
+		List<String> tokens = new ArrayList<>();
+		for(TokenStream stream = tokenize(text); stream.hasNext(); )
+			tokens.add(stream.next().unescaped());
+		return tokens.toArray(String[]::new);
+	}
+
+	/**
+	 * A token, that is a view over a part of the tokenized text. The characters
+	 * of a token are the characters of the source text, escape backslashes
+	 * included, and do not include the surrounding quotes of quoted tokens.
+	 */
+	public class Token implements CharSequence {
+
+		private final CharSequence source;
+		private final int start, end;
+		private final long offset;
+		private final boolean quoted;
+
+		private Token(CharSequence source, int start, int end, long offset, boolean quoted) {
+			this.source = source;
+			this.start = start;
+			this.end = end;
+			this.offset = offset;
+			this.quoted = quoted;
+		}
+
+		/**
+		 * Returns the offset of the first character of this token in the
+		 * tokenized text, the opening quote of quoted tokens is not included.
+		 */
+		public long offset() {
+			return offset;
+		}
+
+		/** Returns true if this token was delimited by quote markers */
+		public boolean isQuoted() {
+			return quoted;
+		}
+
+		@Override
+		public int length() {
+			return end - start;
+		}
+
+		@Override
+		public char charAt(int index) {
+			if(index < 0 || index >= end - start)
+				throw new IndexOutOfBoundsException("Index " + index + " out of bounds for length " + length());
+			return source.charAt(start + index);
+		}
+
+		@Override
+		public CharSequence subSequence(int from, int to) {
+			if(from < 0 || to > end - start || from > to)
+				throw new IndexOutOfBoundsException("Range [" + from + "," + to + ") out of bounds for length " + length());
+			return source.subSequence(start + from, start + to);
+		}
+
+		/** Returns the content of this token with escaped quote markers replaced by the markers alone */
+		public String unescaped() {
+			StringBuilder sb = null;
+			int copied = start;
+			for(int i = start; i < end - 1; i++) {
+				if(source.charAt(i) == ESCAPE && quotes.matches(source.charAt(i + 1))) {
+					if(sb == null)
+						sb = new StringBuilder(end - start);
+					sb.append(source, copied, i);
+					copied = ++i;
+				}
+			}
+			if(sb == null)
+				return toString();
+			return sb.append(source, copied, end).toString();
+		}
+
+		@Override
+		public String toString() {
+			return source.subSequence(start, end).toString();
+		}
+	}
+
+	/**
+	 * The tokens of a text, tokens are parsed lazily as they are requested.
+	 * {@link #next()} throws an {@link IllegalArgumentException} if it
+	 * encounters an unterminated quoted token.
+	 */
+	public class TokenStream implements Iterator<Token>, Iterable<Token> {
+
+		/** null if the whole text is available */
+		private final Reader reader;
+		private char[] buffer;
+		private CharSequence text;
+		/** the number of characters available in text */
+		private int limit;
+		/** offset of text[0] in the source */
+		private long base;
+		private boolean eof;
+		/** current position in text */
+		private int position;
+		private Token next;
+
+		private TokenStream(CharSequence text) {
+			this.reader = null;
+			this.text = text;
+			this.limit = text.length();
+			this.eof = true;
+		}
+
+		private TokenStream(Reader reader) {
+			this.reader = reader;
+			this.buffer = new char[READER_BUFFER_SIZE];
+			this.text = CharBuffer.wrap(buffer);
+		}
+
+		@Override
+		public boolean hasNext() {
+			if(next == null)
+				next = readToken();
+			return next != null;
+		}
+
+		@Override
+		public Token next() {
+			if(!hasNext())
+				throw new NoSuchElementException();
+			Token token = next;
+			next = null;
+			return token;
+		}
+
+		@Override
+		public Iterator<Token> iterator() {
+			return this;
+		}
+
+		private Token readToken() {
+			compact();
+			int n;
+			while(available(position + 1) && (n = separatorAt(position)) != 0)
+				position += n;
+			if(!available(position + 1))
+				return null;
+			int start = position;
+			char quote = text.charAt(start);
+			if(quotes.matches(quote)) {
+				for(int i = start + 1; ; i++) {
+					if(!available(i + 1))
+						throw new IllegalArgumentException("Unterminated quoted token at offset " + (base + start));
+					char c = text.charAt(i);
+					if(c == ESCAPE && available(i + 2) && quotes.matches(text.charAt(i + 1))) {
+						i++;
+					} else if(c == quote && (!available(i + 2) || separatorAt(i + 1) != 0)) {
+						position = i + 1;
+						return new Token(text, start + 1, i, base + start + 1, true);
+					}
+				}
+			}
+			int i = start;
+			while(available(i + 1) && separatorAt(i) == 0) {
+				if(text.charAt(i) == ESCAPE && available(i + 2) && quotes.matches(text.charAt(i + 1)))
+					i += 2;
+				else
+					i++;
+			}
+			position = i;
+			return new Token(text, start, i, base + start, false);
+		}
+
+		/** Returns the length of the separator at {@code i}, or 0 */
+		private int separatorAt(int i) {
+			if(!separatorStarts.matches(text.charAt(i)))
+				return 0;
+			for(char[] s : separators) {
+				if(!available(i + s.length))
+					continue;
+				int j = 0;
+				while(j < s.length && text.charAt(i + j) == s[j])
+					j++;
+				if(j == s.length)
+					return s.length;
+			}
+			return 0;
+		}
+
+		/** Returns true if at least {@code length} characters are available, reading more if necessary */
+		private boolean available(int length) {
+			while(limit < length && !eof)
+				fill();
+			return limit >= length;
+		}
+
+		private void fill() {
+			if(limit == buffer.length) {
+				buffer = Arrays.copyOf(buffer, buffer.length * 2);
+				text = CharBuffer.wrap(buffer);
+			}
+			try {
+				int read = reader.read(buffer, limit, buffer.length - limit);
+				if(read == -1)
+					eof = true;
+				else
+					limit += read;
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+
+		/** Drops the characters of the previous tokens from the reader buffer */
+		private void compact() {
+			if(reader == null || position == 0)
+				return;
+			System.arraycopy(buffer, position, buffer, 0, limit - position);
+			base += position;
+			limit -= position;
+			position = 0;
+		}
+	}
+
+}
@@ -1,5 +1,7 @@
 module fr.wonder.commons {
 
+	requires jdk.unsupported;
+
 	exports fr.wonder.commons.files;
 	exports fr.wonder.commons.loggers;
 	exports fr.wonder.commons.types;
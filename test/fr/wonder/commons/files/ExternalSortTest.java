@@ -0,0 +1,169 @@
+package fr.wonder.commons.files;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import fr.wonder.commons.files.ExternalSort.RecordCodec;
+
+class ExternalSortTest {
+
+	/** A record sorted on its key, the sequence number gives its position in the input */
+	private static final class Record {
+
+		final int key, seq;
+
+		Record(int key, int seq) {
+			this.key = key;
+			this.seq = seq;
+		}
+
+	}
+
+	/** Claims records are large so that runs hold a few records and many runs are merged */
+	private static final RecordCodec<Record> CODEC = new RecordCodec<>() {
+
+		@Override
+		public void write(DataOutput out, Record record) throws IOException {
+			out.writeInt(record.key);
+			out.writeInt(record.seq);
+		}
+
+		@Override
+		public Record read(DataInput in) throws IOException {
+			return new Record(in.readInt(), in.readInt());
+		}
+
+		@Override
+		public long sizeOf(Record record) {
+			return 100_000;
+		}
+
+	};
+
+	private final Random random = new Random(36);
+
+	private static File createTempDirectory() throws IOException {
+		return Files.createTempDirectory("sorttest").toFile();
+	}
+
+	/** Deletes the input and output files and checks that no run file was left behind */
+	private static void cleanUp(File dir, File... files) throws IOException {
+		for(File f : files)
+			Files.delete(f.toPath());
+		assertEquals(0, dir.list().length, "run files left in " + dir);
+		Files.delete(dir.toPath());
+	}
+
+	@Test
+	void recordSortIsStableAcrossIntermediateMerges() throws IOException {
+		File dir = createTempDirectory();
+		File input = new File(dir, "input"), output = new File(dir, "output");
+		List<Record> records = new ArrayList<>();
+		for(int i = 0; i < 3000; i++)
+			records.add(new Record(random.nextInt(20), i));
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(input)))) {
+			for(Record r : records)
+				CODEC.write(out, r);
+		}
+		new ExternalSort()
+				.setMemoryBudget(FilesUtils.SIZE_1M)
+				.setMaxMergeWidth(3)
+				.setTempDirectory(dir)
+				.sort(input, output, CODEC, Comparator.comparingInt(r -> r.key));
+		List<Record> sorted = new ArrayList<>();
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(output)))) {
+			for(int i = 0; i < records.size(); i++)
+				sorted.add(CODEC.read(in));
+			assertThrows(EOFException.class, () -> in.readByte());
+		}
+		for(int i = 1; i < sorted.size(); i++) {
+			Record a = sorted.get(i-1), b = sorted.get(i);
+			assertTrue(a.key < b.key || a.key == b.key && a.seq < b.seq, "unstable order at " + i);
+		}
+		cleanUp(dir, input, output);
+	}
+
+	@Test
+	void sortsIntsInManyRuns() throws IOException {
+		File dir = createTempDirectory();
+		File input = new File(dir, "input"), output = new File(dir, "output");
+		// 1Mb of budget sorts runs of 64K ints, this makes 16 runs merged 2 at a time
+		int[] values = random.ints(1 << 20).toArray();
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(input)))) {
+			for(int x : values)
+				out.writeInt(x);
+		}
+		new ExternalSort()
+				.setMemoryBudget(FilesUtils.SIZE_1M)
+				.setParallelism(3)
+				.setMaxMergeWidth(2)
+				.setTempDirectory(dir)
+				.sortInts(input, output);
+		int[] sorted = new int[values.length];
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(output)))) {
+			for(int i = 0; i < sorted.length; i++)
+				sorted[i] = in.readInt();
+			assertThrows(EOFException.class, () -> in.readByte());
+		}
+		Arrays.sort(values);
+		assertArrayEquals(values, sorted);
+		cleanUp(dir, input, output);
+	}
+
+	@Test
+	void sortsLongsInASingleRun() throws IOException {
+		File dir = createTempDirectory();
+		File input = new File(dir, "input"), output = new File(dir, "output");
+		long[] values = random.longs(1000).toArray();
+		try (DataOutputStream out = new DataOutputStream(new FileOutputStream(input))) {
+			for(long x : values)
+				out.writeLong(x);
+		}
+		new ExternalSort().setTempDirectory(dir).sortLongs(input, output);
+		long[] sorted = new long[values.length];
+		try (DataInputStream in = new DataInputStream(new FileInputStream(output))) {
+			for(int i = 0; i < sorted.length; i++)
+				sorted[i] = in.readLong();
+		}
+		Arrays.sort(values);
+		assertArrayEquals(values, sorted);
+		cleanUp(dir, input, output);
+	}
+
+	@Test
+	void rejectsInvalidSettingsAndFiles() throws IOException {
+		ExternalSort sort = new ExternalSort();
+		assertThrows(IllegalArgumentException.class, () -> sort.setMemoryBudget(FilesUtils.SIZE_1M - 1));
+		assertThrows(IllegalArgumentException.class, () -> sort.setParallelism(0));
+		assertThrows(IllegalArgumentException.class, () -> sort.setMaxMergeWidth(1));
+		File dir = createTempDirectory();
+		File input = new File(dir, "input"), output = new File(dir, "output");
+		Files.write(input.toPath(), new byte[6]);
+		assertThrows(IllegalArgumentException.class, () -> sort.sortInts(input, input));
+		assertThrows(IOException.class, () -> sort.setTempDirectory(dir).sortInts(input, output));
+		cleanUp(dir, input);
+	}
+
+}
@@ -0,0 +1,119 @@
+package fr.wonder.commons.types;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.RetentionPolicy;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+class FrozenMapTest {
+
+	/** Checks that {@code frozen} has exactly the entries of {@code expected} */
+	static <K, V> void assertSameEntries(Map<K, V> expected, FrozenMap<K, V> frozen) {
+		assertEquals(expected.size(), frozen.size());
+		assertEquals(expected, frozen);
+		assertEquals(frozen, expected);
+		assertEquals(expected.hashCode(), frozen.hashCode());
+		for(Map.Entry<K, V> e : expected.entrySet()) {
+			assertTrue(frozen.containsKey(e.getKey()));
+			assertEquals(e.getValue(), frozen.get(e.getKey()));
+		}
+		int[] count = { 0 };
+		frozen.forEach((k, v) -> {
+			assertEquals(expected.get(k), v);
+			count[0]++;
+		});
+		assertEquals(expected.size(), count[0]);
+	}
+
+	/** Returns a map whose string keys share few hash codes, "Aa" and "BB" collide */
+	static Map<String, Integer> collidingMap(int size) {
+		Map<String, Integer> map = new HashMap<>();
+		for(int i = 0; map.size() < size; i++) {
+			String suffix = Integer.toString(i / 2);
+			map.put((i % 2 == 0 ? "Aa" : "BB") + suffix, i);
+		}
+		return map;
+	}
+
+	@Test
+	void copiesMapsOfAllSizes() {
+		for(int size : new int[] { 0, 1, 2, 15, 16, 17, 100, 5000 })
+			assertSameEntries(collidingMap(size), FrozenMap.copyOf(collidingMap(size)));
+	}
+
+	@Test
+	void supportsNullKeysAndValues() {
+		for(int size : new int[] { 3, 40 }) {
+			Map<String, Integer> map = collidingMap(size);
+			map.put(null, 7);
+			map.put("none", null);
+			FrozenMap<String, Integer> frozen = FrozenMap.copyOf(map);
+			assertSameEntries(map, frozen);
+			assertEquals(Integer.valueOf(7), frozen.get(null));
+			assertTrue(frozen.containsKey("none"));
+			assertNull(frozen.getOrDefault("none", 1));
+			assertEquals(Integer.valueOf(1), frozen.getOrDefault("missing", 1));
+			assertFalse(frozen.containsKey("missing"));
+		}
+	}
+
+	@Test
+	void copiesEnumKeyedMaps() {
+		Map<ElementType, String> map = new EnumMap<>(ElementType.class);
+		map.put(ElementType.FIELD, "field");
+		map.put(ElementType.METHOD, null);
+		FrozenMap<ElementType, String> frozen = FrozenMap.copyOf(map);
+		assertSameEntries(map, frozen);
+		assertFalse(frozen.containsKey(ElementType.TYPE));
+		assertTrue(frozen.containsKey(ElementType.METHOD));
+		assertFalse(frozen.containsKey(RetentionPolicy.RUNTIME));
+		assertFalse(frozen.containsKey("FIELD"));
+
+		// constants of different enums fall back to the generic layouts
+		Map<Object, String> mixed = new HashMap<>();
+		mixed.put(ElementType.FIELD, "field");
+		mixed.put(RetentionPolicy.RUNTIME, "runtime");
+		assertSameEntries(mixed, FrozenMap.copyOf(mixed));
+	}
+
+	@Test
+	void rejectsModifications() {
+		FrozenMap<String, Integer> frozen = FrozenMap.copyOf(collidingMap(20));
+		assertThrows(UnsupportedOperationException.class, () -> frozen.put("a", 1));
+		assertThrows(UnsupportedOperationException.class, () -> frozen.remove("Aa0"));
+		assertThrows(UnsupportedOperationException.class, () -> frozen.entrySet().iterator().next().setValue(0));
+		assertSame(frozen, FrozenMap.copyOf(frozen));
+	}
+
+	@Test
+	void biMapLooksUpBothDirections() {
+		Map<String, Integer> map = collidingMap(30);
+		FrozenBiMap<String, Integer> bimap = FrozenBiMap.copyOf(map);
+		assertSameEntries(map, bimap);
+		for(Map.Entry<String, Integer> e : map.entrySet()) {
+			assertEquals(e.getKey(), bimap.inverse().get(e.getValue()));
+			assertTrue(bimap.containsValue(e.getValue()));
+		}
+		assertSame(bimap, bimap.inverse().inverse());
+		assertFalse(bimap.containsValue(-1));
+	}
+
+	@Test
+	void biMapRejectsDuplicateValues() {
+		Map<String, Integer> map = new HashMap<>();
+		map.put("a", 1);
+		map.put("b", 1);
+		assertThrows(IllegalArgumentException.class, () -> FrozenBiMap.copyOf(map));
+	}
+
+}
@@ -0,0 +1,116 @@
+package fr.wonder.commons.types;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class IntObjectMapTest {
+
+	/** Returns {@code count} keys whose ideal slot is {@code slot} in a table of {@code capacity} slots */
+	static int[] collidingKeys(int count, int slot, int capacity) {
+		int[] keys = new int[count];
+		for(int k = 1, n = 0; n < count; k++) {
+			if((OpenHashing.mix(k) & (capacity - 1)) == slot)
+				keys[n++] = k;
+		}
+		return keys;
+	}
+
+	@Test
+	void removalShiftsBackCollidingKeys() {
+		// 16 slots hold up to 12 entries, the 6 keys form a single probe run
+		IntObjectMap<String> map = new IntObjectMap<>(12);
+		int[] keys = collidingKeys(6, 3, 16);
+		for(int k : keys)
+			map.put(k, "v" + k);
+		for(int i = 0; i < keys.length; i++) {
+			assertEquals("v" + keys[i], map.remove(keys[i]));
+			assertFalse(map.containsKey(keys[i]));
+			for(int j = i + 1; j < keys.length; j++)
+				assertEquals("v" + keys[j], map.get(keys[j]), "key " + keys[j] + " lost after removals");
+		}
+		assertTrue(map.isEmpty());
+	}
+
+	@Test
+	void removalInTheMiddleOfARun() {
+		IntObjectMap<String> map = new IntObjectMap<>(12);
+		int[] run = collidingKeys(4, 15, 16);
+		// keys of the next slot interleave with the run, which wraps around the table
+		int[] next = collidingKeys(2, 0, 16);
+		for(int k : run)
+			map.put(k, "r" + k);
+		for(int k : next)
+			map.put(k, "n" + k);
+		map.remove(run[1]);
+		map.remove(next[0]);
+		assertEquals(4, map.size());
+		for(int k : new int[] { run[0], run[2], run[3] })
+			assertEquals("r" + k, map.get(k));
+		assertEquals("n" + next[1], map.get(next[1]));
+		assertNull(map.get(run[1]));
+	}
+
+	@Test
+	void zeroKeyIsStoredApart() {
+		IntObjectMap<String> map = new IntObjectMap<>();
+		assertFalse(map.containsKey(0));
+		assertNull(map.put(0, null));
+		assertTrue(map.containsKey(0));
+		assertNull(map.get(0));
+		assertEquals("d", map.getOrDefault(1, "d"));
+		map.put(0, "zero");
+		assertEquals(1, map.size());
+		assertEquals("zero", map.remove(0));
+		assertTrue(map.isEmpty());
+	}
+
+	@Test
+	void behavesLikeAHashMap() {
+		Random random = new Random(42);
+		IntObjectMap<Integer> map = new IntObjectMap<>();
+		Map<Integer, Integer> expected = new HashMap<>();
+		for(int i = 0; i < 200_000; i++) {
+			// few distinct keys so that puts and removes hit existing entries
+			int key = random.nextInt(2000) - 1000;
+			int op = random.nextInt(3);
+			if(op == 0)
+				assertEquals(expected.put(key, i), map.put(key, i));
+			else if(op == 1)
+				assertEquals(expected.remove(key), map.remove(key));
+			else
+				assertEquals(expected.get(key), map.get(key));
+			assertEquals(expected.size(), map.size());
+		}
+		List<Integer> seen = new ArrayList<>();
+		map.forEach((k, v) -> {
+			assertEquals(expected.get(k), v);
+			seen.add(k);
+		});
+		assertEquals(expected.size(), seen.size());
+		assertEquals(expected.size(), map.keys().length);
+	}
+
+	@Test
+	void clearKeepsTheMapUsable() {
+		IntObjectMap<String> map = new IntObjectMap<>();
+		for(int i = 0; i < 100; i++)
+			map.put(i, "v" + i);
+		map.clear();
+		assertTrue(map.isEmpty());
+		assertFalse(map.containsKey(0));
+		assertNull(map.get(50));
+		map.put(50, "x");
+		assertEquals("x", map.get(50));
+	}
+
+}
@@ -0,0 +1,99 @@
+package fr.wonder.commons.types;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class LongObjectMapTest {
+
+	/** Returns {@code count} keys above 2^32 whose ideal slot is {@code slot} in a table of {@code capacity} slots */
+	static long[] collidingKeys(int count, int slot, int capacity) {
+		long[] keys = new long[count];
+		for(long k = 1L << 32, n = 0; n < count; k++) {
+			if((OpenHashing.mix(k) & (capacity - 1)) == slot)
+				keys[(int) n++] = k;
+		}
+		return keys;
+	}
+
+	@Test
+	void removalShiftsBackCollidingKeys() {
+		LongObjectMap<String> map = new LongObjectMap<>(12);
+		long[] run = collidingKeys(5, 14, 16);
+		long[] next = collidingKeys(3, 15, 16);
+		for(int i = 0; i < run.length; i++) {
+			map.put(run[i], "r" + run[i]);
+			if(i < next.length)
+				map.put(next[i], "n" + next[i]);
+		}
+		for(int i = 0; i < run.length; i++) {
+			assertEquals("r" + run[i], map.remove(run[i]));
+			for(int j = i + 1; j < run.length; j++)
+				assertEquals("r" + run[j], map.get(run[j]), "key " + run[j] + " lost after removals");
+			for(long k : next)
+				assertEquals("n" + k, map.get(k), "key " + k + " lost after removals");
+		}
+		assertEquals(next.length, map.size());
+	}
+
+	@Test
+	void zeroKeyIsStoredApart() {
+		LongObjectMap<String> map = new LongObjectMap<>();
+		map.put(0, "zero");
+		map.put(Long.MIN_VALUE, "min");
+		assertEquals(2, map.size());
+		assertEquals("zero", map.get(0));
+		assertEquals("zero", map.remove(0));
+		assertFalse(map.containsKey(0));
+		assertEquals("min", map.get(Long.MIN_VALUE));
+	}
+
+	@Test
+	void keysDifferingInTheHighBitsAreDistinct() {
+		LongObjectMap<Integer> map = new LongObjectMap<>();
+		for(int i = 0; i < 64; i++)
+			map.put(1L << i, i);
+		assertEquals(64, map.size());
+		for(int i = 0; i < 64; i++)
+			assertEquals(Integer.valueOf(i), map.get(1L << i));
+		long[] keys = map.keys();
+		Arrays.sort(keys);
+		long[] expected = new long[64];
+		for(int i = 0; i < 64; i++)
+			expected[i] = 1L << i;
+		Arrays.sort(expected);
+		assertArrayEquals(expected, keys);
+	}
+
+	@Test
+	void behavesLikeAHashMap() {
+		Random random = new Random(7);
+		LongObjectMap<Integer> map = new LongObjectMap<>();
+		Map<Long, Integer> expected = new HashMap<>();
+		for(int i = 0; i < 200_000; i++) {
+			long key = (random.nextInt(2000) - 1000) * 0x1_0000_0001L;
+			int op = random.nextInt(3);
+			if(op == 0)
+				assertEquals(expected.put(key, i), map.put(key, i));
+			else if(op == 1)
+				assertEquals(expected.remove(key), map.remove(key));
+			else
+				assertEquals(expected.get(key), map.get(key));
+			assertEquals(expected.size(), map.size());
+		}
+		map.forEach((k, v) -> assertEquals(expected.get(k), v));
+		map.clear();
+		assertTrue(map.isEmpty());
+		assertNull(map.get(0x1_0000_0001L));
+	}
+
+}
@@ -0,0 +1,122 @@
+package fr.wonder.commons.types;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class ObjectIntMapTest {
+
+	/** A key with a chosen hash code, equal keys share the same id */
+	private static final class Key {
+
+		final int id, hash;
+
+		Key(int id, int hash) {
+			this.id = id;
+			this.hash = hash;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			return o instanceof Key && ((Key) o).id == id;
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+
+		@Override
+		public String toString() {
+			return "k" + id;
+		}
+
+	}
+
+	@Test
+	void removalShiftsBackCollidingKeys() {
+		ObjectIntMap<Key> map = new ObjectIntMap<>(12);
+		Key[] keys = new Key[8];
+		for(int i = 0; i < keys.length; i++)
+			keys[i] = new Key(i, i % 2 == 0 ? 1234 : 5678);
+		for(int i = 0; i < keys.length; i++)
+			map.put(keys[i], 100 + i);
+		for(int i = 0; i < keys.length; i += 2)
+			assertEquals(100 + i, map.remove(new Key(i, 1234)));
+		assertEquals(4, map.size());
+		for(int i = 1; i < keys.length; i += 2)
+			assertEquals(100 + i, map.get(keys[i]));
+		for(int i = 0; i < keys.length; i += 2)
+			assertFalse(map.containsKey(keys[i]));
+	}
+
+	@Test
+	void missingKeysMapToZero() {
+		ObjectIntMap<String> map = new ObjectIntMap<>();
+		assertEquals(0, map.get("a"));
+		assertEquals(-1, map.getOrDefault("a", -1));
+		assertEquals(0, map.put("a", 3));
+		assertEquals(3, map.put("a", 4));
+		assertEquals(4, map.remove("a"));
+		assertEquals(0, map.remove("a"));
+	}
+
+	@Test
+	void nullKeyIsStoredApart() {
+		ObjectIntMap<String> map = new ObjectIntMap<>();
+		assertFalse(map.containsKey(null));
+		assertEquals(2, map.addTo(null, 2));
+		assertEquals(5, map.addTo(null, 3));
+		map.put("a", 1);
+		assertEquals(2, map.size());
+		assertTrue(map.keys().contains(null));
+		assertEquals(5, map.remove(null));
+		assertEquals(List.of("a"), map.keys());
+	}
+
+	@Test
+	void addToCountsOccurrences() {
+		ObjectIntMap<String> map = new ObjectIntMap<>();
+		for(String word : "a b a c b a".split(" "))
+			map.addTo(word, 1);
+		assertEquals(3, map.get("a"));
+		assertEquals(2, map.get("b"));
+		assertEquals(1, map.get("c"));
+	}
+
+	@Test
+	void behavesLikeAHashMap() {
+		Random random = new Random(3);
+		ObjectIntMap<Key> map = new ObjectIntMap<>();
+		Map<Key, Integer> expected = new HashMap<>();
+		for(int i = 0; i < 200_000; i++) {
+			int id = random.nextInt(2000);
+			// few distinct hashes so that runs of colliding keys are long
+			Key key = new Key(id, id % 300);
+			int op = random.nextInt(3);
+			if(op == 0) {
+				Integer previous = expected.put(key, i);
+				assertEquals(previous == null ? 0 : previous, map.put(key, i));
+			} else if(op == 1) {
+				Integer previous = expected.remove(key);
+				assertEquals(previous == null ? 0 : previous, map.remove(key));
+			} else {
+				assertEquals(expected.containsKey(key), map.containsKey(key));
+			}
+			assertEquals(expected.size(), map.size());
+		}
+		map.forEach((k, v) -> assertEquals((int) expected.get(k), v));
+		assertEquals(expected.keySet(), new HashSet<>(map.keys()));
+		map.clear();
+		assertTrue(map.isEmpty());
+	}
+
+}
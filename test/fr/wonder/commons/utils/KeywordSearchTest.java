@@ -0,0 +1,144 @@
+package fr.wonder.commons.utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import fr.wonder.commons.utils.KeywordSearch.Match;
+
+class KeywordSearchTest {
+
+	private final Random random = new Random(44);
+
+	/** Returns the matches of {@code keywords} in {@code text} in the order of {@link KeywordSearch} */
+	private static List<Match> bruteForce(byte[][] keywords, byte[] text) {
+		Integer[] byLength = new Integer[keywords.length];
+		for(int i = 0; i < keywords.length; i++)
+			byLength[i] = i;
+		Arrays.sort(byLength, (a, b) -> keywords[b].length - keywords[a].length);
+		List<Match> matches = new ArrayList<>();
+		for(int end = 1; end <= text.length; end++) {
+			for(int k : byLength) {
+				int start = end - keywords[k].length;
+				if(start >= 0 && Arrays.equals(keywords[k], 0, keywords[k].length, text, start, end) && isFirstOccurrence(keywords, k))
+					matches.add(new Match(k, start, end));
+			}
+		}
+		return matches;
+	}
+
+	private static boolean isFirstOccurrence(byte[][] keywords, int k) {
+		for(int i = 0; i < k; i++) {
+			if(Arrays.equals(keywords[i], keywords[k]))
+				return false;
+		}
+		return true;
+	}
+
+	/** Encodes the strings so that the brute force search works on chars as well as on bytes */
+	private static byte[][] chars(String... strings) {
+		byte[][] encoded = new byte[strings.length][];
+		for(int i = 0; i < strings.length; i++)
+			encoded[i] = strings[i].getBytes(StandardCharsets.UTF_16BE);
+		return encoded;
+	}
+
+	private static byte[][] utf8(String... strings) {
+		byte[][] encoded = new byte[strings.length][];
+		for(int i = 0; i < strings.length; i++)
+			encoded[i] = strings[i].getBytes(StandardCharsets.UTF_8);
+		return encoded;
+	}
+
+	/** Returns the expected char matches, UTF-16 matches are kept only if they are aligned on chars */
+	private static List<Match> expectedCharMatches(String[] keywords, String text) {
+		List<Match> matches = new ArrayList<>();
+		for(Match m : bruteForce(chars(keywords), chars(text)[0])) {
+			if(m.start() % 2 == 0)
+				matches.add(new Match(m.keyword(), m.start() / 2, m.end() / 2));
+		}
+		return matches;
+	}
+
+	private void assertFindsAll(String[] keywords, String text) {
+		KeywordSearch search = new KeywordSearch(keywords);
+		List<Match> expected = expectedCharMatches(keywords, text);
+		assertEquals(expected, search.findAll(text));
+		assertEquals(!expected.isEmpty(), search.containsAny(text));
+		ByteBuffer buffer = ByteBuffer.wrap(text.getBytes(StandardCharsets.UTF_8));
+		List<Match> expectedBytes = bruteForce(utf8(keywords), buffer.array());
+		assertEquals(expectedBytes, search.findAll(buffer));
+		assertEquals(!expectedBytes.isEmpty(), search.containsAny(buffer));
+	}
+
+	@Test
+	void reportsOverlappingMatchesThroughFailLinks() {
+		// "ushers": "she" fails over to "he" then "hers" continues from "he"
+		String[] keywords = { "he", "she", "his", "hers", "zzz" };
+		List<Match> expected = List.of(new Match(1, 1, 4), new Match(0, 2, 4), new Match(3, 2, 6));
+		assertEquals(expected, new KeywordSearch(keywords).findAll("ushers"));
+		assertEquals(expected, new KeywordSearch(Arrays.copyOf(keywords, 4)).findAll("ushers"));
+		assertFindsAll(keywords, "ushers hishe sshis hhershe");
+	}
+
+	@Test
+	void reportsNestedKeywords() {
+		String[] keywords = { "a", "aa", "aaa", "ab", "bab", "b" };
+		assertFindsAll(keywords, "aaaabaabab");
+		assertFindsAll(new String[] { "a", "aa" }, "aaaa");
+	}
+
+	@Test
+	void reportsDuplicateKeywordsOnce() {
+		KeywordSearch search = new KeywordSearch("ab", "cd", "ab", "ef", "gh");
+		assertEquals(List.of(new Match(0, 0, 2)), search.findAll("ab"));
+		assertEquals("ab", search.getKeyword(2));
+		assertEquals(5, search.keywordCount());
+	}
+
+	@Test
+	void matchesRandomTexts() {
+		char[] alphabet = { 'a', 'b', 'c', '\u00e9', '\u4e2d' };
+		for(int round = 0; round < 200; round++) {
+			String[] keywords = new String[1 + random.nextInt(12)];
+			for(int i = 0; i < keywords.length; i++)
+				keywords[i] = randomString(alphabet, 1 + random.nextInt(5));
+			assertFindsAll(keywords, randomString(alphabet, random.nextInt(300)));
+		}
+	}
+
+	@Test
+	void searchesBufferSlices() {
+		KeywordSearch search = new KeywordSearch("ab", "ba", "bb", "aa", "abc");
+		ByteBuffer buffer = ByteBuffer.wrap("xxabcxx".getBytes(StandardCharsets.UTF_8));
+		buffer.position(1).limit(5);
+		assertEquals(List.of(new Match(0, 2, 4), new Match(4, 2, 5)), search.findAll(buffer));
+		assertEquals(1, buffer.position());
+		buffer.position(3);
+		assertFalse(search.containsAny(buffer));
+	}
+
+	@Test
+	void rejectsEmptyKeywords() {
+		assertThrows(IllegalArgumentException.class, () -> new KeywordSearch("a", ""));
+		assertTrue(new KeywordSearch().findAll("abc").isEmpty());
+	}
+
+	private String randomString(char[] alphabet, int length) {
+		char[] chars = new char[length];
+		for(int i = 0; i < length; i++)
+			chars[i] = alphabet[random.nextInt(alphabet.length)];
+		return new String(chars);
+	}
+
+}
@@ -0,0 +1,139 @@
+package fr.wonder.commons.utils;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class OffHeapArrayTest {
+
+	private final Random random = new Random(29);
+
+	private static int[] toInts(List<Integer> list) {
+		return list.stream().mapToInt(Integer::intValue).toArray();
+	}
+
+	@Test
+	void behavesLikeAList() throws IOException {
+		List<Integer> expected = new ArrayList<>();
+		try (OffHeapIntArray array = new OffHeapIntArray()) {
+			for(int i = 0; i < 20_000; i++) {
+				int op = random.nextInt(5);
+				int x = random.nextInt();
+				if(op <= 1 || expected.isEmpty()) {
+					expected.add(x);
+					array.add(x);
+				} else if(op == 2) {
+					int index = random.nextInt(expected.size() + 1);
+					expected.add(index, x);
+					array.addAt(index, x);
+				} else if(op == 3) {
+					int index = random.nextInt(expected.size());
+					expected.remove(index);
+					array.removeAt(index);
+				} else {
+					int index = random.nextInt(expected.size());
+					expected.set(index, x);
+					array.set(index, x);
+				}
+				assertEquals(expected.size(), array.size());
+			}
+			assertArrayEquals(toInts(expected), array.toArray());
+			for(int i = 0; i < expected.size(); i += 97)
+				assertEquals((int) expected.get(i), array.get(i));
+		}
+	}
+
+	@Test
+	void removesRanges() throws IOException {
+		try (OffHeapLongArray array = OffHeapLongArray.of(0, 1, 2, 3, 4, 5, 6, 7)) {
+			array.removeAt(2, 3);
+			assertArrayEquals(new long[] { 0, 1, 5, 6, 7 }, array.toArray());
+			array.removeAt(3, 2).removeAt(0, 0);
+			assertArrayEquals(new long[] { 0, 1, 5 }, array.toArray());
+			assertThrows(IndexOutOfBoundsException.class, () -> array.removeAt(2, 2));
+			assertThrows(IndexOutOfBoundsException.class, () -> array.removeAt(1, -1));
+			assertThrows(IndexOutOfBoundsException.class, () -> array.get(3));
+			assertThrows(IndexOutOfBoundsException.class, () -> array.addAt(4, 0));
+		}
+	}
+
+	@Test
+	void searchesAndFills() throws IOException {
+		int[] values = random.ints(1000, 0, 100).toArray();
+		try (OffHeapIntArray ints = OffHeapIntArray.of(values);
+				OffHeapDoubleArray doubles = new OffHeapDoubleArray()) {
+			for(int x : new int[] { 0, 50, 99, 100 }) {
+				int expected = -1;
+				for(int i = 0; i < values.length && expected == -1; i++)
+					if(values[i] == x)
+						expected = i;
+				assertEquals(expected, ints.indexOf(x));
+				assertEquals(expected != -1, ints.contains(x));
+			}
+			ints.fill(7);
+			assertEquals(0, ints.indexOf(7));
+			assertFalse(ints.contains(0));
+
+			doubles.add(1.5, -0.0, 2.5).add(3);
+			assertArrayEquals(new double[] { 1.5, -0.0, 2.5, 3 }, doubles.toArray());
+			assertEquals(3, doubles.indexOf(3));
+			assertEquals(-1, doubles.indexOf(4));
+		}
+	}
+
+	@Test
+	void rejectsUseAfterClose() throws IOException {
+		OffHeapIntArray array = OffHeapIntArray.of(1, 2, 3);
+		array.close();
+		array.close();
+		assertTrue(array.isClosed());
+		assertEquals(0, array.size());
+		assertThrows(IllegalStateException.class, () -> array.add(4));
+		assertThrows(IllegalStateException.class, () -> array.add(4, 5));
+		assertThrows(IllegalStateException.class, () -> array.fill(0));
+		assertThrows(IllegalStateException.class, () -> array.indexOf(1));
+		assertThrows(IllegalStateException.class, () -> array.toArray());
+		assertThrows(IllegalStateException.class, () -> array.clear());
+		assertThrows(IllegalStateException.class, () -> array.flush());
+	}
+
+	@Test
+	void mappedArraysPersistTheirContent() throws IOException {
+		File file = Files.createTempFile("offheap", ".bin").toFile();
+		try {
+			Files.delete(file.toPath());
+			long[] values = random.longs(5000).toArray();
+			try (OffHeapLongArray array = OffHeapLongArray.map(file)) {
+				assertTrue(array.isMapped());
+				assertTrue(array.isEmpty());
+				array.add(values).removeAt(0);
+			}
+			try (OffHeapLongArray array = OffHeapLongArray.map(file)) {
+				assertEquals(values.length - 1, array.size());
+				assertEquals(values[1], array.get(0));
+				assertEquals(values[values.length - 1], array.get(array.size() - 1));
+				array.clear().add(42);
+			}
+			try (OffHeapLongArray array = OffHeapLongArray.map(file)) {
+				assertArrayEquals(new long[] { 42 }, array.toArray());
+			}
+			assertThrows(IOException.class, () -> OffHeapIntArray.map(file));
+			Files.write(file.toPath(), new byte[32]);
+			assertThrows(IOException.class, () -> OffHeapLongArray.map(file));
+		} finally {
+			Files.deleteIfExists(file.toPath());
+		}
+	}
+
+}
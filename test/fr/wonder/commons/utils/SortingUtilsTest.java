@@ -0,0 +1,312 @@
+package fr.wonder.commons.utils;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class SortingUtilsTest {
+
+	private static final float[] SPECIAL_FLOATS = {
+			0f, -0f, 1f, -1f, Float.MIN_VALUE, -Float.MIN_VALUE, Float.MAX_VALUE, -Float.MAX_VALUE,
+			Float.POSITIVE_INFINITY, Float.NEGATIVE_INFINITY, Float.NaN, Float.intBitsToFloat(0xffc00000),
+	};
+	private static final double[] SPECIAL_DOUBLES = {
+			0d, -0d, 1d, -1d, Double.MIN_VALUE, -Double.MIN_VALUE, Double.MAX_VALUE, -Double.MAX_VALUE,
+			Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY, Double.NaN, Double.longBitsToDouble(0xfff8000000000000L),
+	};
+
+	/** Array lengths around the thresholds of the sorts */
+	private static final int[] SIZES = { 0, 1, 2, 10, 100, 1000, 100_000 };
+
+	private final Random random = new Random(31);
+
+	@Test
+	void radixSortsInts() {
+		for(int size : SIZES) {
+			int[] array = random.ints(size).toArray();
+			// few distinct high bytes, so that some passes are skipped
+			int[] narrow = random.ints(size, -300, 300).toArray();
+			for(int[] a : new int[][] { array, narrow }) {
+				int[] expected = a.clone();
+				Arrays.sort(expected);
+				assertArrayEquals(expected, SortingUtils.radixSort(a));
+			}
+		}
+	}
+
+	@Test
+	void radixSortsUnsignedInts() {
+		int[] array = { -1, 0, Integer.MIN_VALUE, Integer.MAX_VALUE, 1, -2 };
+		assertArrayEquals(new int[] { 0, 1, Integer.MAX_VALUE, Integer.MIN_VALUE, -2, -1 }, SortingUtils.radixSortUnsigned(array));
+		long[] longs = { -1, 0, Long.MIN_VALUE, Long.MAX_VALUE, 1, -2 };
+		SortingUtils.radixSortUnsigned(longs, new long[longs.length]);
+		assertArrayEquals(new long[] { 0, 1, Long.MAX_VALUE, Long.MIN_VALUE, -2, -1 }, longs);
+	}
+
+	@Test
+	void radixSortsShortsAndLongs() {
+		for(int size : SIZES) {
+			short[] shorts = new short[size];
+			for(int i = 0; i < size; i++)
+				shorts[i] = (short) random.nextInt();
+			short[] expectedShorts = shorts.clone();
+			Arrays.sort(expectedShorts);
+			assertArrayEquals(expectedShorts, SortingUtils.radixSort(shorts));
+
+			long[] longs = random.longs(size).toArray();
+			long[] expectedLongs = longs.clone();
+			Arrays.sort(expectedLongs);
+			assertArrayEquals(expectedLongs, SortingUtils.radixSort(longs));
+		}
+		long[] extremes = { Long.MAX_VALUE, -1, Long.MIN_VALUE, 0, 1, Long.MIN_VALUE + 1 };
+		assertArrayEquals(new long[] { Long.MIN_VALUE, Long.MIN_VALUE + 1, -1, 0, 1, Long.MAX_VALUE }, SortingUtils.radixSort(extremes));
+	}
+
+	@Test
+	void radixSortsFloatsLikeArraysSort() {
+		for(int size : SIZES) {
+			float[] array = new float[size];
+			for(int i = 0; i < size; i++)
+				array[i] = random.nextInt(4) == 0 ? SPECIAL_FLOATS[random.nextInt(SPECIAL_FLOATS.length)] : (float) random.nextGaussian() * 1000;
+			float[] expected = array.clone();
+			Arrays.sort(expected);
+			assertArrayEquals(expected, SortingUtils.radixSort(array));
+		}
+		float[] sorted = SortingUtils.radixSort(SPECIAL_FLOATS);
+		assertEquals(Float.NEGATIVE_INFINITY, sorted[0]);
+		assertEquals(Float.floatToIntBits(-0f), Float.floatToIntBits(sorted[4]));
+		assertEquals(Float.floatToIntBits(0f), Float.floatToIntBits(sorted[5]));
+		assertEquals(Float.NaN, sorted[sorted.length - 1]);
+		assertEquals(Float.NaN, sorted[sorted.length - 2]);
+	}
+
+	@Test
+	void radixSortsDoublesLikeArraysSort() {
+		for(int size : SIZES) {
+			double[] array = new double[size];
+			for(int i = 0; i < size; i++)
+				array[i] = random.nextInt(4) == 0 ? SPECIAL_DOUBLES[random.nextInt(SPECIAL_DOUBLES.length)] : random.nextGaussian() * 1e6;
+			double[] expected = array.clone();
+			Arrays.sort(expected);
+			assertArrayEquals(expected, SortingUtils.radixSort(array));
+		}
+		double[] sorted = SortingUtils.radixSort(SPECIAL_DOUBLES);
+		assertEquals(Double.NEGATIVE_INFINITY, sorted[0]);
+		assertEquals(Double.doubleToLongBits(-0d), Double.doubleToLongBits(sorted[4]));
+		assertEquals(Double.doubleToLongBits(0d), Double.doubleToLongBits(sorted[5]));
+		assertEquals(Double.NaN, sorted[sorted.length - 1]);
+		assertEquals(Double.NaN, sorted[sorted.length - 2]);
+	}
+
+	@Test
+	void radixSortReusesLargerBuffers() {
+		int[] buffer = new int[1000];
+		for(int size : new int[] { 10, 1000, 500 }) {
+			int[] array = random.ints(size).toArray();
+			int[] expected = array.clone();
+			Arrays.sort(expected);
+			SortingUtils.radixSort(array, buffer);
+			assertArrayEquals(expected, array);
+		}
+	}
+
+	@Test
+	void parallelRadixSortsLargeArrays() {
+		for(int size : new int[] { 1000, 300_000 }) {
+			int[] ints = random.ints(size).toArray();
+			int[] expectedInts = ints.clone();
+			Arrays.sort(expectedInts);
+			assertArrayEquals(expectedInts, SortingUtils.parallelRadixSort(ints));
+
+			long[] longs = random.longs(size).toArray();
+			long[] expectedLongs = longs.clone();
+			Arrays.sort(expectedLongs);
+			assertArrayEquals(expectedLongs, SortingUtils.parallelRadixSort(longs));
+		}
+	}
+
+	@Test
+	void parallelSortIsStable() {
+		// pairs {key, original index}, sorted on few distinct keys
+		Integer[][] pairs = new Integer[200_000][];
+		for(int i = 0; i < pairs.length; i++)
+			pairs[i] = new Integer[] { random.nextInt(50), i };
+		Integer[][] expected = pairs.clone();
+		Arrays.sort(expected, Comparator.comparing(p -> p[0]));
+		Object[] buffer = new Object[pairs.length + 10];
+		SortingUtils.parallelSort(pairs, Comparator.comparing(p -> p[0]), buffer);
+		assertArrayEquals(expected, pairs);
+		// the buffer can be reused with a different comparator
+		SortingUtils.parallelSort(pairs, Comparator.comparing(p -> p[1]), buffer);
+		for(int i = 0; i < pairs.length; i++)
+			assertEquals(i, (int) pairs[i][1]);
+	}
+
+	@Test
+	void argsortIsStable() {
+		for(int size : SIZES) {
+			int[] keys = random.ints(size, -20, 20).toArray();
+			long[] longKeys = random.longs(size).map(l -> l >> 60).toArray();
+			int[] p = SortingUtils.argsort(keys);
+			int[] q = SortingUtils.argsort(longKeys);
+			for(int i = 1; i < size; i++) {
+				assertTrue(keys[p[i-1]] < keys[p[i]] || keys[p[i-1]] == keys[p[i]] && p[i-1] < p[i]);
+				assertTrue(longKeys[q[i-1]] < longKeys[q[i]] || longKeys[q[i-1]] == longKeys[q[i]] && q[i-1] < q[i]);
+			}
+		}
+	}
+
+	@Test
+	void sortsByExtractedKeys() {
+		String[] words = { "ccc", "a", "bb", "dd", "e", "fff", "" };
+		String[] byLength = words.clone();
+		SortingUtils.sortByIntKey(byLength, String::length);
+		assertArrayEquals(new String[] { "", "a", "e", "bb", "dd", "ccc", "fff" }, byLength);
+		String[] byNegatedLength = words.clone();
+		SortingUtils.sortByLongKey(byNegatedLength, w -> -w.length() * (1L << 40));
+		assertArrayEquals(new String[] { "ccc", "fff", "bb", "dd", "a", "e", "" }, byNegatedLength);
+
+		int[] permutation = SortingUtils.argsortByIntKey(words, String::length);
+		assertArrayEquals(byLength, SortingUtils.permute(words, permutation));
+		int[] lengths = { 3, 1, 2, 2, 1, 3, 0 };
+		assertArrayEquals(new int[] { 0, 1, 1, 2, 2, 3, 3 }, SortingUtils.permute(lengths, permutation));
+	}
+
+	/** Random, sorted, reversed, constant and organ pipe arrays */
+	private int[][] selectionInputs(int size) {
+		int[] sorted = new int[size], reversed = new int[size], pipe = new int[size];
+		for(int i = 0; i < size; i++) {
+			sorted[i] = i;
+			reversed[i] = size - i;
+			pipe[i] = Math.min(i, size - i);
+		}
+		return new int[][] { random.ints(size).toArray(), random.ints(size, 0, 3).toArray(), sorted, reversed, pipe, new int[size] };
+	}
+
+	@Test
+	void selectPartitionsAroundK() {
+		for(int size : new int[] { 1, 2, 17, 1000, 50_000 }) {
+			for(int[] input : selectionInputs(size)) {
+				int[] expected = input.clone();
+				Arrays.sort(expected);
+				for(int k : new int[] { 0, size / 2, size - 1, random.nextInt(size) }) {
+					int[] array = input.clone();
+					assertEquals(expected[k], SortingUtils.select(array, k));
+					for(int i = 0; i < k; i++)
+						assertTrue(array[i] <= array[k]);
+					for(int i = k + 1; i < size; i++)
+						assertTrue(array[i] >= array[k]);
+				}
+			}
+		}
+	}
+
+	@Test
+	void selectsLongsDoublesAndObjects() {
+		long[] longs = random.longs(1000).toArray();
+		double[] doubles = new double[1000];
+		for(int i = 0; i < doubles.length; i++)
+			doubles[i] = random.nextInt(4) == 0 ? SPECIAL_DOUBLES[random.nextInt(SPECIAL_DOUBLES.length)] : random.nextGaussian();
+		String[] strings = new String[1000];
+		for(int i = 0; i < strings.length; i++)
+			strings[i] = Integer.toString(random.nextInt(500), 36);
+		long[] sortedLongs = longs.clone();
+		double[] sortedDoubles = doubles.clone();
+		String[] sortedStrings = strings.clone();
+		Arrays.sort(sortedLongs);
+		Arrays.sort(sortedDoubles);
+		Arrays.sort(sortedStrings);
+		for(int k : new int[] { 0, 1, 499, 998, 999 }) {
+			assertEquals(sortedLongs[k], SortingUtils.select(longs, k));
+			assertEquals(sortedDoubles[k], SortingUtils.select(doubles, k));
+			assertEquals(sortedStrings[k], SortingUtils.select(strings, k, Comparator.naturalOrder()));
+		}
+	}
+
+	@Test
+	void selectChecksItsRange() {
+		int[] array = new int[10];
+		assertThrows(IndexOutOfBoundsException.class, () -> SortingUtils.select(array, 10));
+		assertThrows(IndexOutOfBoundsException.class, () -> SortingUtils.select(array, 2, 5, 6));
+		assertThrows(IndexOutOfBoundsException.class, () -> SortingUtils.partialSort(array, 5, 11));
+	}
+
+	@Test
+	void partialSortSortsTheRange() {
+		for(int[] input : selectionInputs(10_000)) {
+			int[] expected = input.clone();
+			Arrays.sort(expected);
+			int[] array = input.clone();
+			SortingUtils.partialSort(array, 4000, 4100);
+			assertArrayEquals(Arrays.copyOfRange(expected, 4000, 4100), Arrays.copyOfRange(array, 4000, 4100));
+			for(int i = 0; i < 4000; i++)
+				assertTrue(array[i] <= array[4000]);
+			for(int i = 4100; i < array.length; i++)
+				assertTrue(array[i] >= array[4099]);
+		}
+		double[] doubles = SPECIAL_DOUBLES.clone();
+		double[] expected = SPECIAL_DOUBLES.clone();
+		Arrays.sort(expected);
+		SortingUtils.partialSort(doubles, 0, doubles.length);
+		assertArrayEquals(expected, doubles);
+	}
+
+	@Test
+	void topKReturnsTheSmallestElementsInOrder() {
+		int[] array = random.ints(10_000, -500, 500).toArray();
+		int[] sorted = array.clone();
+		Arrays.sort(sorted);
+		for(int k : new int[] { 0, 1, 10, 9999, 10_000, 20_000 })
+			assertArrayEquals(Arrays.copyOf(sorted, Math.min(k, array.length)), SortingUtils.topK(array, k));
+		assertThrows(IllegalArgumentException.class, () -> SortingUtils.topK(array, -1));
+
+		List<Integer> boxed = new ArrayList<>();
+		for(int x : array)
+			boxed.add(x);
+		List<Integer> largest = new ArrayList<>();
+		for(int i = 0; i < 25; i++)
+			largest.add(sorted[sorted.length - 1 - i]);
+		assertEquals(largest, SortingUtils.topK(boxed, 25, Comparator.<Integer>reverseOrder()));
+		assertEquals(largest, boxed.parallelStream().collect(SortingUtils.topKCollector(25, Comparator.<Integer>reverseOrder())));
+	}
+
+	@Test
+	void sortsStringsLikeArraysSort() {
+		String[] prefixes = { "", "a", "fr.wonder.commons.", "fr.wonder.commons.utils.", "\u00e9t\u00e9", "\ud83d\ude00" };
+		for(int size : SIZES) {
+			String[] array = new String[size];
+			for(int i = 0; i < size; i++)
+				array[i] = prefixes[random.nextInt(prefixes.length)] + Integer.toString(random.nextInt(1000), random.nextBoolean() ? 36 : 2);
+			String[] expected = array.clone();
+			Arrays.sort(expected);
+			SortingUtils.sortStrings(array);
+			assertArrayEquals(expected, array);
+		}
+		String[] prefixesOfEachOther = { "abcd", "ab", "", "abc", "a", "abcde", "ab", "\0", "\0\0" };
+		String[] expected = prefixesOfEachOther.clone();
+		Arrays.sort(expected);
+		SortingUtils.sortStrings(prefixesOfEachOther);
+		assertArrayEquals(expected, prefixesOfEachOther);
+	}
+
+	@Test
+	void sortsStringRangesAndLists() {
+		String[] array = { "z", "c", "b", "a", "y" };
+		SortingUtils.sortStrings(array, 1, 4);
+		assertArrayEquals(new String[] { "z", "a", "b", "c", "y" }, array);
+		assertThrows(IndexOutOfBoundsException.class, () -> SortingUtils.sortStrings(array, 2, 6));
+		List<String> list = new ArrayList<>(List.of("pear", "apple", "peach", "apricot"));
+		SortingUtils.sortStrings(list);
+		assertEquals(List.of("apple", "apricot", "peach", "pear"), list);
+	}
+
+}
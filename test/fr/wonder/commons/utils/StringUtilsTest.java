@@ -0,0 +1,70 @@
+package fr.wonder.commons.utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class StringUtilsTest {
+
+	@Test
+	void unescapesOctalSequencesLikeJava() {
+		assertEquals("\0", StringUtils.unescape("\\0"));
+		assertEquals("\1" + "9", StringUtils.unescape("\\19"));
+		assertEquals("\377", StringUtils.unescape("\\377"));
+		// three digits only if the first one is at most 3
+		assertEquals("\47" + "7", StringUtils.unescape("\\477"));
+		assertEquals("\40" + "0", StringUtils.unescape("\\400"));
+		assertEquals("\123" + "4", StringUtils.unescape("\\1234"));
+		assertEquals("a\7b", StringUtils.unescape("a\\7b"));
+		assertEquals("\0\0", StringUtils.unescape("\\0\\0"));
+		assertEquals("\12" + "8", StringUtils.unescape("\\128"));
+	}
+
+	@Test
+	void unescapesHexadecimalSequences() {
+		assertEquals("A", StringUtils.unescape("\\x41"));
+		assertEquals("\u00ff" + "f", StringUtils.unescape("\\xfFf"));
+		assertEquals("\u20ac", StringUtils.unescape("\\u20AC"));
+		assertEquals("\u20ac" + "0", StringUtils.unescape("\\u20ac0"));
+		assertEquals("a\nb\t\"'\\?", StringUtils.unescape("a\\nb\\t\\\"\\'\\\\\\?"));
+	}
+
+	@Test
+	void rejectsInvalidSequences() {
+		String[] invalid = {
+				"\\", "ab\\", "\\q", "\\x4", "\\xg0", "\\u12", "\\u12z4",
+				// digits of other scripts are not hexadecimal digits
+				"\\x\u0661\u0662", "\\u\uff11\uff12\uff13\uff14",
+		};
+		for(String text : invalid)
+			assertThrows(IllegalArgumentException.class, () -> StringUtils.unescape(text), text);
+		IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> StringUtils.unescape("abc\\x4"));
+		assertTrue(e.getMessage().contains("offset 3"), e.getMessage());
+	}
+
+	@Test
+	void returnsTextsWithoutEscapesAsIs() {
+		String text = "no escape here";
+		assertSame(text, StringUtils.unescape(text));
+		assertEquals(text, StringUtils.unescape(new StringBuilder(text)));
+	}
+
+	@Test
+	void unescapeReversesEscape() {
+		assertEquals("\\\"a\\\\b\\n\\u0001\\u007f", StringUtils.escape("\"a\\b\n\1\u007f", '"'));
+		Random random = new Random(46);
+		for(int i = 0; i < 1000; i++) {
+			char[] chars = new char[random.nextInt(20)];
+			for(int j = 0; j < chars.length; j++)
+				chars[j] = (char) random.nextInt(random.nextBoolean() ? 128 : 0x10000);
+			String text = new String(chars);
+			assertEquals(text, StringUtils.unescape(StringUtils.escape(text, '\'')));
+		}
+	}
+
+}